@@ -2,75 +2,160 @@ package SQ.CustomAnalysis;
 
 import com.strategyquant.lib.*;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import com.strategyquant.datalib.*;
 import com.strategyquant.tradinglib.*;
 
+import com.strategyquant.tradinglib.strategy.OutOfSample;
+
+import SQ.Functions.QuantileSketch;
+import SQ.Functions.TradeResampler;
+
 public class CustomFilter extends CustomAnalysisMethod {
 	private static final double MinSDFilter_THRESHOLD = 50.0;
+
+	// metrics used in composite score, order matches METRIC_WEIGHTS
+	private static final String[] METRIC_KEYS = { "ReturnDDRatio", "Stability", "ProfitFactor", "SharpeRatio", "RExpectancy", "Stagnation" };
+
+	// --- Weights identical to Variant 1 (stagnation is penalized) ---
+	private static final double[] METRIC_WEIGHTS = { 1.4, 3.8, 2.2, 1.6, 0.6, -0.008 };
+
+	// weights of robust scaled metrics (per IQR) - same as above, only stagnation penalty 
+	// is moved from -0.008 per day to -1 per IQR of databank stagnation
+	private static final double[] ROBUST_WEIGHTS = { 1.4, 3.8, 2.2, 1.6, 0.6, -1.0 };
+
+	// metrics recomputed for every robustness iteration
+	private static final int IDX_RETDD = 0;
+	private static final int IDX_SHARPE = 3;
+	private static final int IDX_STAGNATION = 5;
+
+	// robust scaled metric values are clipped to +-this many IQRs around median
+	private static final double ROBUST_CLIP = 3.0;
+
+	// below this number of strategies in sketch we fall back to fixed normalization
+	private static final long MIN_SKETCH_SAMPLES = 30;
+
+	// strategies per worker when building sketches in processDatabank()
+	private static final int SKETCH_CHUNK_SIZE = 256;
+
+	// metric sketches are rebuilt from scratch when more than this fraction of sketched strategies
+	// is no longer in databank
+	private static final double MAX_REMOVED_FRACTION = 0.2;
+
+	// sketches are persisted here between runs, one file per project / databank
+	private static final File SKETCH_DIR = new File(System.getProperty("CustomFilter.sketchDir", "user/CustomFilter"));
+
+	// version of the sketch file format, files of other versions are rebuilt from scratch
+	private static final int SKETCH_FILE_VERSION = 2;
+
+	// filter mode checks the sketch file again only after this time
+	private static final long SKETCH_RECHECK_MILLIS = 5000;
+
+	// sketch lookups of filter mode, project -> databank -> lookup
+	private static final ConcurrentHashMap<String, ConcurrentHashMap<String, SketchLookup>> sketchLookups = new ConcurrentHashMap<>();
+
+	// options parsed from the last seen input args, filter threads share them
+	private volatile FilterOptions options;
+
 	//------------------------------------------------------------------------
 	//------------------------------------------------------------------------
 	//------------------------------------------------------------------------
-	
+
     /**
      * set the type of CA snippet here - it is either used as:
      * - strategy filter - it will call filterStrategy() method for one strategy
      * - databank processor - it will call processDatabank() for all strategies in databank
-     * 
+     *
      * Uncomment the one you want to use.
+     *
+     * Databank distribution sketches used for adaptive score normalization are built and persisted
+     * only by processDatabank() - run this snippet once as databank processor on the databank, strategy
+     * filter then reads the persisted sketches. Until there are any, fixed 0-20 raw score range is used.
      */
 	public CustomFilter() {
 		super("CustomFilter", TYPE_FILTER_STRATEGY);
 		//super("CustomFilter", TYPE_PROCESS_DATABANK);
 	}
-	
+
 	//------------------------------------------------------------------------
-	
+
+	/**
+	 * Filters single strategy. If processDatabank() was run before for this databank, score is normalized
+	 * using the persisted databank sketches, otherwise the fixed 0-20 raw score range is used.
+	 *
+	 * Input args are the score threshold, optionally followed by robustness settings, for example
+	 * "60 mc=1000 pct=5 mode=bootstrap" - see FilterOptions.
+	 */
 	@Override
 	public boolean filterStrategy(String project, String task, String databankName, ResultsGroup rg) throws Exception {
 		Result mainResult = rg.subResult(rg.getMainResultKey());
 		SQStats stats = mainResult.stats(Directions.Both, PlTypes.Money, SampleTypes.InSample);
 
-		String raw = getInputArgs();
-		double value = Double.parseDouble(raw.trim());
+		FilterOptions options = getOptions();
+
+		double[] metrics = readMetrics(stats);
+
+		DatabankSketches sketches = getPersistedSketches(project, databankName);
 
-		double score = computeScore(stats);
-		return score >= value;
+		double score = options.iterations > 0 ? computeRobustScore(rg, metrics, sketches, options) : computeScore(metrics, sketches);
+		return score >= options.threshold;
 	}
 
-	private static double computeScore(SQStats s) {
-		double retDD = 0;
-		double stability = 0;
-		double profitFactor = 0;
-		double sharpeRatio = 0;
-		double expectancyScore = 0;
-		double stagnationDays = 0;
+	//------------------------------------------------------------------------
+
+	/**
+	 * Options for current input args, parsed again only when input args change.
+	 */
+	private FilterOptions getOptions() {
+		String args = getInputArgs();
+
+		FilterOptions cached = options;
+		if (cached != null && cached.args.equals(args)) {
+			return cached;
+		}
+
+		FilterOptions parsed = FilterOptions.parse(args);
+		options = parsed;
+		return parsed;
+	}
+
+	//------------------------------------------------------------------------
+
+	private static double[] readMetrics(SQStats s) {
+		double[] metrics = new double[METRIC_KEYS.length];
 
 		if (s != null) {
-			retDD           = safeGet(s, "ReturnDDRatio");
-			stability       = safeGet(s, "Stability");
-			profitFactor    = safeGet(s, "ProfitFactor");
-			sharpeRatio     = safeGet(s, "SharpeRatio");
-			expectancyScore = safeGet(s, "RExpectancy");
-			stagnationDays  = safeGet(s, "Stagnation");
-		}
-
-		// --- Weights identical to Variant 1 ---
-		final double W_RETDD   = 1.4;
-		final double W_STAB    = 3.8;
-		final double W_PF      = 2.2;
-		final double W_SHARPE  = 1.6;
-		final double W_EXP     = 0.6;
-		final double W_STAGNEG = 0.008;
+			for (int i = 0; i < METRIC_KEYS.length; i++) {
+				metrics[i] = safeGet(s, METRIC_KEYS[i]);
+			}
+		}
+
+		return metrics;
+	}
 
+	//------------------------------------------------------------------------
+
+	/**
+	 * Score normalized to fixed expected raw score range.
+	 */
+	static double computeScore(double[] metrics) {
 		// 1) Compute raw score
-		double raw = (W_RETDD * retDD)
-				+ (W_STAB * stability)
-				+ (W_PF * profitFactor)
-				+ (W_SHARPE * sharpeRatio)
-				+ (W_EXP * expectancyScore)
-				- (W_STAGNEG * stagnationDays);
+		double raw = 0;
+		for (int i = 0; i < metrics.length; i++) {
+			raw += METRIC_WEIGHTS[i] * metrics[i];
+		}
 
 		// 2) Normalize raw value to 0–100 range
 		final double MIN_EXPECTED = 0.0;   // expected minimum raw score
@@ -90,6 +175,97 @@ public class CustomFilter extends CustomAnalysisMethod {
 		return norm;
 	}
 
+	//------------------------------------------------------------------------
+
+	/**
+	 * Score normalized to databank distribution - percentile rank (0-100) of the composite score.
+	 * Falls back to fixed normalization when there are no usable sketches.
+	 */
+	static double computeScore(double[] metrics, DatabankSketches sketches) {
+		if (sketches == null || !sketches.isUsable()) {
+			return computeScore(metrics);
+		}
+
+		double composite = computeComposite(metrics, sketches);
+		return 100.0 * sketches.composite.rank(composite);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Composite of robust scaled metrics - every metric is scaled as (value - median) / IQR and clipped,
+	 * so outliers like the 99999 R Expectancy fallback don't dominate the score, and weighted by ROBUST_WEIGHTS.
+	 */
+	private static double computeComposite(double[] metrics, DatabankSketches sketches) {
+		double composite = 0;
+
+		for (int i = 0; i < metrics.length; i++) {
+			double iqr = sketches.iqr[i];
+			if (iqr <= 0) {
+				continue;
+			}
+
+			double scaled = (metrics[i] - sketches.median[i]) / iqr;
+			if (scaled < -ROBUST_CLIP) scaled = -ROBUST_CLIP;
+			if (scaled > ROBUST_CLIP)  scaled = ROBUST_CLIP;
+
+			composite += ROBUST_WEIGHTS[i] * scaled;
+		}
+
+		return composite;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Robustness score - trades are reshuffled / resampled N times, drawdown, stagnation and Sharpe based
+	 * components are recomputed for every iteration and the chosen percentile of resulting scores is returned,
+	 * so strategies that passed only thanks to a lucky trade sequence are filtered out.
+	 */
+	static double computeRobustScore(ResultsGroup rg, double[] metrics, DatabankSketches sketches, FilterOptions options) throws Exception {
+		OrdersList orders = rg.orders().filterWithClone(rg.getMainResultKey(), Directions.Both, SampleTypes.InSample);
+
+		// observed Stagnation is cut at OOS ranges, resampled one must be too
+		SettingsMap settings = rg.subResult(rg.getMainResultKey()).getSettings();
+		OutOfSample oosPeriods = settings == null ? null : (OutOfSample) settings.get("ChartOOS");
+
+		TradeResampler resampler = new TradeResampler(orders, oosPeriods);
+		if (resampler.getTradesCount() == 0) {
+			return computeScore(metrics, sketches);
+		}
+
+		TradeResampler.Samples samples = resampler.simulate(options.iterations, options.mode, options.seed ^ rg.getName().hashCode());
+
+		double[] scores = new double[samples.size()];
+		double[] resampled = metrics.clone();
+
+		for (int i = 0; i < scores.length; i++) {
+			resampled[IDX_RETDD]      = round2(returnDDRatio(samples.netProfit[i], samples.drawdown[i]));
+			resampled[IDX_SHARPE]     = round2(samples.sharpeRatio[i]);
+			resampled[IDX_STAGNATION] = samples.stagnationDays[i];
+
+			scores[i] = computeScore(resampled, sketches);
+		}
+
+		Arrays.sort(scores);
+
+		int index = (int) Math.floor(options.percentile / 100.0 * (scores.length - 1));
+		return scores[Math.max(0, Math.min(scores.length - 1, index))];
+	}
+
+	// Same as ReturnDDRatio column
+	private static double returnDDRatio(double netProfit, double drawdown) {
+		if (drawdown == 0) {
+			return netProfit == 0 ? 0 : 10d;
+		}
+		return netProfit / drawdown;
+	}
+
+	// Same rounding as DatabankColumn.round2 used by the columns
+	private static double round2(double value) {
+		return Math.round(value * 100d) / 100d;
+	}
+
 	// Safe getter (avoids NaN, null, or missing stats)
 	private static double safeGet(SQStats stats, String key) {
 		try {
@@ -99,16 +275,406 @@ public class CustomFilter extends CustomAnalysisMethod {
 			return 0.0;
 		}
 	}
-	
+
 	//------------------------------------------------------------------------
-	
+
+	/**
+	 * Scores all strategies in databank against the databank's own distribution and returns those
+	 * with score >= threshold.
+	 *
+	 * Metric sketches are loaded from the previous run and only strategies not seen before are added,
+	 * so incremental databank updates don't rescan everything. Workers build partial sketches for
+	 * their chunk of the databank which are merged afterwards.
+	 *
+	 * Seen strategies are tracked by name in a fixed size Bloom filter (StrategyNames), so the persisted
+	 * state doesn't grow with the number of strategies.
+	 *
+	 * Sketches can't remove values, so metric sketches are an approximation of the current databank -
+	 * deleted strategies stay in them and a strategy retested under the same name keeps its old metrics.
+	 * They are rebuilt from scratch when more than MAX_REMOVED_FRACTION of sketched strategies is gone
+	 * from databank. Composite sketch is always built from the current databank.
+	 */
 	@Override
 	public ArrayList<ResultsGroup> processDatabank(String project, String task, String databankName, ArrayList<ResultsGroup> databankRG) throws Exception {
-		return databankRG;
+		FilterOptions options = getOptions();
+
+		DatabankSketches sketches = loadSketches(project, databankName);
+		if (sketches != null && isOutdated(sketches, databankRG)) {
+			sketches = null;
+		}
+		if (sketches == null) {
+			sketches = new DatabankSketches();
+		}
+
+		final DatabankSketches known = sketches;
+		int count = databankRG.size();
+		int chunks = (count + SKETCH_CHUNK_SIZE - 1) / SKETCH_CHUNK_SIZE;
+
+		double[][] metrics = new double[count][];
+		String[] names = new String[count];
+
+		// 1) one pass over databank - read metrics and sketch the ones of new strategies
+		QuantileSketch[] newMetrics = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+			QuantileSketch[] partial = newMetricSketches();
+
+			int to = Math.min(count, (c + 1) * SKETCH_CHUNK_SIZE);
+			for (int i = c * SKETCH_CHUNK_SIZE; i < to; i++) {
+				ResultsGroup rg = databankRG.get(i);
+				Result mainResult = rg.subResult(rg.getMainResultKey());
+
+				metrics[i] = readMetrics(mainResult.stats(Directions.Both, PlTypes.Money, SampleTypes.InSample));
+				names[i] = rg.getName();
+
+				if (!known.strategies.mightContain(names[i])) {
+					for (int m = 0; m < partial.length; m++) {
+						partial[m].update(metrics[i][m]);
+					}
+				}
+			}
+			return partial;
+		}).reduce(CustomFilter::mergeMetricSketches).orElseGet(CustomFilter::newMetricSketches);
+
+		mergeMetricSketches(sketches.metrics, newMetrics);
+		for (String name : names) {
+			sketches.strategies.add(name);
+		}
+		sketches.updateScaling();
+
+		// 2) composite distribution of the current databank
+		sketches.composite = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+			QuantileSketch partial = new QuantileSketch();
+
+			int to = Math.min(count, (c + 1) * SKETCH_CHUNK_SIZE);
+			for (int i = c * SKETCH_CHUNK_SIZE; i < to; i++) {
+				partial.update(computeComposite(metrics[i], known));
+			}
+			return partial;
+		}).reduce((a, b) -> { a.merge(b); return a; }).orElseGet(QuantileSketch::new);
+
+		saveSketches(project, databankName, sketches);
+
+		// 3) filter
+		ArrayList<ResultsGroup> filtered = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double score = options.iterations > 0 ? computeRobustScore(databankRG.get(i), metrics[i], sketches, options) : computeScore(metrics[i], sketches);
+			if (score >= options.threshold) {
+				filtered.add(databankRG.get(i));
+			}
+		}
+
+		return filtered;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * True if too many of the strategies in metric sketches were removed from databank.
+	 */
+	private static boolean isOutdated(DatabankSketches sketches, ArrayList<ResultsGroup> databankRG) {
+		long sketched = sketches.metrics[0].getCount();
+
+		long present = 0;
+		for (int i = 0; i < databankRG.size(); i++) {
+			if (sketches.strategies.mightContain(databankRG.get(i).getName())) {
+				present++;
+			}
+		}
+
+		return sketched - present > MAX_REMOVED_FRACTION * sketched;
+	}
+
+	//------------------------------------------------------------------------
+
+	private static QuantileSketch[] newMetricSketches() {
+		QuantileSketch[] sketches = new QuantileSketch[METRIC_KEYS.length];
+		for (int i = 0; i < sketches.length; i++) {
+			sketches[i] = new QuantileSketch();
+		}
+		return sketches;
+	}
+
+	// merges other into target, partial sketches of different chunks only
+	private static QuantileSketch[] mergeMetricSketches(QuantileSketch[] target, QuantileSketch[] other) {
+		for (int i = 0; i < target.length; i++) {
+			target[i].merge(other[i]);
+		}
+		return target;
+	}
+
+	//------------------------------------------------------------------------
+
+	static File getSketchFile(String project, String databankName) {
+		String name = (project + "_" + databankName).replaceAll("[^A-Za-z0-9_.-]", "_");
+		return new File(SKETCH_DIR, name + ".sketch");
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Returns persisted sketches for filter mode. Lookup is cached per project and databank, the file
+	 * is checked again after SKETCH_RECHECK_MILLIS and sketches are reloaded only when it changed.
+	 */
+	private static DatabankSketches getPersistedSketches(String project, String databankName) {
+		ConcurrentHashMap<String, SketchLookup> databanks = getSketchLookups(project);
+
+		long now = System.currentTimeMillis();
+		SketchLookup lookup = databanks.get(databankName);
+		if (lookup != null && now - lookup.checkedAt < SKETCH_RECHECK_MILLIS) {
+			return lookup.sketches;
+		}
+
+		File file = lookup != null ? lookup.file : getSketchFile(project, databankName);
+
+		DatabankSketches sketches = null;
+		if (file.exists()) {
+			if (lookup != null && lookup.sketches != null && lookup.sketches.fileModified == file.lastModified()) {
+				sketches = lookup.sketches;
+			} else {
+				sketches = loadSketches(project, databankName);
+			}
+		}
+
+		databanks.put(databankName, new SketchLookup(file, sketches, now));
+		return sketches;
+	}
+
+	private static ConcurrentHashMap<String, SketchLookup> getSketchLookups(String project) {
+		ConcurrentHashMap<String, SketchLookup> databanks = sketchLookups.get(project);
+		if (databanks == null) {
+			databanks = new ConcurrentHashMap<>();
+			ConcurrentHashMap<String, SketchLookup> existing = sketchLookups.putIfAbsent(project, databanks);
+			if (existing != null) {
+				databanks = existing;
+			}
+		}
+		return databanks;
+	}
+
+	//------------------------------------------------------------------------
+
+	static DatabankSketches loadSketches(String project, String databankName) {
+		File file = getSketchFile(project, databankName);
+		if (!file.exists()) {
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			int version = in.readInt();
+			if (version != SKETCH_FILE_VERSION) {
+				return null;
+			}
+
+			DatabankSketches sketches = new DatabankSketches();
+
+			for (int i = 0; i < METRIC_KEYS.length; i++) {
+				sketches.metrics[i] = QuantileSketch.readFrom(in);
+			}
+			sketches.composite = QuantileSketch.readFrom(in);
+
+			sketches.strategies.readFrom(in);
+
+			// scaling and sorted views are built before the sketches are shared by filter threads
+			sketches.updateScaling();
+			sketches.composite.prepare();
+			sketches.fileModified = file.lastModified();
+			return sketches;
+		} catch (IOException e) {
+			// corrupted or outdated file - start from scratch
+			return null;
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	private static void saveSketches(String project, String databankName, DatabankSketches sketches) throws IOException {
+		SKETCH_DIR.mkdirs();
+		File file = getSketchFile(project, databankName);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(SKETCH_FILE_VERSION);
+
+			for (QuantileSketch sketch : sketches.metrics) {
+				sketch.writeTo(out);
+			}
+			sketches.composite.writeTo(out);
+
+			sketches.strategies.writeTo(out);
+		}
+
+		// filter mode in this JVM picks up new sketches right away
+		getSketchLookups(project).remove(databankName);
+	}
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	/**
+	 * Databank distribution - sketch per metric, sketch of composite score and names of strategies
+	 * already included in metric sketches.
+	 */
+	static class DatabankSketches {
+		final QuantileSketch[] metrics = newMetricSketches();
+		QuantileSketch composite = new QuantileSketch();
+		final StrategyNames strategies = new StrategyNames();
+
+		final double[] median = new double[METRIC_KEYS.length];
+		final double[] iqr = new double[METRIC_KEYS.length];
+
+		long fileModified;
+
+		void updateScaling() {
+			for (int i = 0; i < metrics.length; i++) {
+				if (metrics[i].isEmpty()) {
+					median[i] = 0;
+					iqr[i] = 0;
+				} else {
+					median[i] = metrics[i].quantile(0.5);
+					iqr[i] = metrics[i].quantile(0.75) - metrics[i].quantile(0.25);
+				}
+			}
+		}
+
+		boolean isUsable() {
+			return composite.getCount() >= MIN_SKETCH_SAMPLES;
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Result of sketch file lookup in filter mode, sketches are null when there is no usable file.
+	 */
+	private static class SketchLookup {
+		final File file;
+		final DatabankSketches sketches;
+		final long checkedAt;
+
+		SketchLookup(File file, DatabankSketches sketches, long checkedAt) {
+			this.file = file;
+			this.sketches = sketches;
+			this.checkedAt = checkedAt;
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Names of strategies already included in metric sketches, as a Bloom filter of fixed 256 KB.
+	 * False positive rate is about 0.02% for 100k strategies and 4% for 300k strategies - a false
+	 * positive means a new strategy is not added to metric sketches, it is still scored.
+	 */
+	static class StrategyNames {
+		private static final int BITS_LOG2 = 21;
+		private static final int HASHES = 7;
+
+		private final long[] bits = new long[(1 << BITS_LOG2) / 64];
+
+		void add(String name) {
+			long hash = hash(name);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32) | 1;
+
+			for (int i = 0; i < HASHES; i++) {
+				int bit = (h1 + i * h2) >>> (32 - BITS_LOG2);
+				bits[bit >>> 6] |= 1L << bit;
+			}
+		}
+
+		boolean mightContain(String name) {
+			long hash = hash(name);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32) | 1;
+
+			for (int i = 0; i < HASHES; i++) {
+				int bit = (h1 + i * h2) >>> (32 - BITS_LOG2);
+				if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			for (long word : bits) {
+				out.writeLong(word);
+			}
+		}
+
+		void readFrom(DataInputStream in) throws IOException {
+			for (int i = 0; i < bits.length; i++) {
+				bits[i] = in.readLong();
+			}
+		}
+
+		// 64 bit FNV-1a with final mixing, String.hashCode() is too short for double hashing
+		private static long hash(String name) {
+			long h = 0xcbf29ce484222325L;
+			for (int i = 0; i < name.length(); i++) {
+				h ^= name.charAt(i);
+				h *= 0x100000001b3L;
+			}
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			return h;
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Settings from input args: score threshold (required) followed by optional key=value pairs
+	 * - mc   - number of robustness iterations, 0 (default) turns robustness mode off
+	 * - pct  - percentile of the robustness score distribution used for filtering, default 5
+	 * - mode - shuffle (default) reorders trades, bootstrap resamples them with replacement
+	 * - seed - random seed, combined with strategy name so results are repeatable
+	 */
+	static class FilterOptions {
+		String args;
+		double threshold;
+		int iterations = 0;
+		double percentile = 5;
+		int mode = TradeResampler.MODE_SHUFFLE;
+		long seed = 0;
+
+		static FilterOptions parse(String args) {
+			FilterOptions options = new FilterOptions();
+			options.args = args == null ? "" : args;
+			boolean hasThreshold = false;
+
+			for (String token : unescape(args).trim().split("[\\s;,]+")) {
+				int eq = token.indexOf('=');
+				if (eq < 0) {
+					if (!token.isEmpty()) {
+						options.threshold = Double.parseDouble(token);
+						hasThreshold = true;
+					}
+					continue;
+				}
+
+				String key = token.substring(0, eq).trim().toLowerCase();
+				String value = token.substring(eq + 1).trim();
+
+				switch (key) {
+					case "mc":   options.iterations = Integer.parseInt(value); break;
+					case "pct":  options.percentile = Double.parseDouble(value); break;
+					case "mode": options.mode = "bootstrap".equalsIgnoreCase(value) ? TradeResampler.MODE_BOOTSTRAP : TradeResampler.MODE_SHUFFLE; break;
+					case "seed": options.seed = Long.parseLong(value); break;
+					default:     throw new IllegalArgumentException("Unknown CustomFilter option: " + key);
+				}
+			}
+
+			if (!hasThreshold) {
+				throw new IllegalArgumentException("CustomFilter input args must contain score threshold, for example \"60 mc=1000\"");
+			}
+
+			return options;
+		}
 	}
 
 	private static String unescape(String s) {
         if (s == null) return "";
         return s.replace("\\n", "\n").replace("\\t", "\t").replace("\\r", "\r");
     }
-}
\ No newline at end of file
+}
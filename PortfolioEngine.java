@@ -0,0 +1,398 @@
+package SQ.Functions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import com.strategyquant.lib.SQTime;
+import com.strategyquant.tradinglib.Order;
+import com.strategyquant.tradinglib.OrdersList;
+
+import SQ.Columns.Databanks.SharpeRatio;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * Fast portfolio construction from precomputed daily return vectors.
+ *
+ * Every strategy's % PL is bucketed once into business days of a common calendar (the same bucketing as
+ * SharpeRatio uses) and stored as one row of a dense matrix. A candidate portfolio is then evaluated
+ * by adding its rows together, without merging orders. Greedy and beam search selection evaluate
+ * candidates in parallel, every worker reuses its own scratch vector and stats.
+ *
+ * Portfolio stats are computed on the daily vector, so they are close to but not the same as
+ * the databank columns - see computeStats().
+ *
+ * Usage:
+ * <pre>
+ * PortfolioEngine engine = new PortfolioEngine(ordersLists);
+ * PortfolioEngine.Portfolio best = engine.selectBeam(5, 20, PortfolioEngine.BY_SHARPE);
+ * </pre>
+ */
+public class PortfolioEngine {
+	public static final ToDoubleFunction<PortfolioStats> BY_SHARPE = s -> s.sharpeRatio;
+	public static final ToDoubleFunction<PortfolioStats> BY_REGRESSION_R2 = s -> s.regressionR2;
+
+	// we take 5% yearly profit as benchmark for computing Sharpe ratio, same as SharpeRatio column
+	private static final double BENCHMARK = 0.05/252;
+
+	private final int strategiesCount;
+	private final int days;
+
+	// row-major matrix strategiesCount x days of daily % returns
+	private final double[] returns;
+
+	// random 64 bit key per strategy, set of strategies is identified by XOR of its keys
+	private final long[] strategyKeys;
+
+	private final ThreadLocal<Scratch> scratch;
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	public PortfolioEngine(List<OrdersList> strategies) {
+		strategiesCount = strategies.size();
+
+		long firstDate = Long.MAX_VALUE;
+		long lastDate = -1;
+
+		for(OrdersList ordersList : strategies) {
+			for(int i=0; i<ordersList.size(); i++) {
+				long closeTime = ordersList.get(i).CloseTime;
+				if(closeTime < firstDate) firstDate = closeTime;
+				if(closeTime > lastDate) lastDate = closeTime;
+			}
+		}
+
+		if(lastDate < 0) {
+			days = 0;
+			returns = new double[0];
+		} else {
+			firstDate = SQTime.correctDayStart(firstDate);
+			int firstDateDow = SQTime.getDayOfWeek(firstDate);
+
+			days = SharpeRatio.getBusinessDaysCount(firstDate, lastDate);
+			returns = new double[strategiesCount * days];
+
+			for(int s=0; s<strategiesCount; s++) {
+				OrdersList ordersList = strategies.get(s);
+				int rowStart = s * days;
+
+				for(int i=0; i<ordersList.size(); i++) {
+					Order o = ordersList.get(i);
+
+					int index = SharpeRatio.getBusinessDayIndex(o.CloseTime, firstDate, firstDateDow);
+					if(index < 0 || index >= days) {
+						continue;
+					}
+
+					returns[rowStart + index] += o.PctPL;
+				}
+			}
+		}
+
+		strategyKeys = new long[strategiesCount];
+		SplittableRandom random = new SplittableRandom(strategiesCount);
+		for(int s=0; s<strategiesCount; s++) {
+			strategyKeys[s] = random.nextLong();
+		}
+
+		scratch = ThreadLocal.withInitial(() -> new Scratch(days));
+	}
+
+	//------------------------------------------------------------------------
+
+	public int getStrategiesCount() {
+		return strategiesCount;
+	}
+
+	public int getDaysCount() {
+		return days;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Evaluates portfolio made of given strategies (indexes in the list passed to constructor).
+	 */
+	public PortfolioStats evaluate(int... members) {
+		double[] sum = new double[days];
+		for(int member : members) {
+			addRow(sum, member);
+		}
+
+		PortfolioStats stats = new PortfolioStats();
+		computeStats(sum, stats);
+		return stats;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Greedy selection - starts with the best single strategy and in every step adds the strategy
+	 * that improves the objective the most.
+	 */
+	public Portfolio selectGreedy(int size, ToDoubleFunction<PortfolioStats> objective) {
+		size = Math.min(size, strategiesCount);
+
+		double[] base = new double[days];
+		boolean[] used = new boolean[strategiesCount];
+		int[] members = new int[size];
+
+		double[] scores = new double[strategiesCount];
+
+		for(int step=0; step<size; step++) {
+			final double[] current = base;
+
+			IntStream.range(0, strategiesCount).parallel().forEach(c -> {
+				if(!used[c]) {
+					scores[c] = evaluateWith(current, c, objective);
+				}
+			});
+
+			// best unused candidate, lowest index wins ties
+			int chosen = -1;
+			for(int c=0; c<strategiesCount; c++) {
+				if(!used[c] && (chosen < 0 || scores[c] > scores[chosen])) {
+					chosen = c;
+				}
+			}
+
+			used[chosen] = true;
+			members[step] = chosen;
+			addRow(base, chosen);
+		}
+
+		return toPortfolio(members, base);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Beam search selection - keeps beamWidth best portfolios of every size and extends each of them
+	 * by every strategy not yet included.
+	 */
+	public Portfolio selectBeam(int size, int beamWidth, ToDoubleFunction<PortfolioStats> objective) {
+		size = Math.min(size, strategiesCount);
+
+		List<BeamState> beam = new ArrayList<>();
+		beam.add(new BeamState(new int[0], 0L, new double[days]));
+
+		IntArrayList candidateStates = new IntArrayList();
+		IntArrayList candidateStrategies = new IntArrayList();
+		LongOpenHashSet seen = new LongOpenHashSet();
+
+		for(int step=0; step<size; step++) {
+			// unique candidates (state, added strategy), sets are compared by their 64 bit keys
+			candidateStates.clear();
+			candidateStrategies.clear();
+			seen.clear();
+
+			for(int b=0; b<beam.size(); b++) {
+				BeamState state = beam.get(b);
+				for(int c=0; c<strategiesCount; c++) {
+					if(state.contains(c)) {
+						continue;
+					}
+
+					if(seen.add(state.key ^ strategyKeys[c])) {
+						candidateStates.add(b);
+						candidateStrategies.add(c);
+					}
+				}
+			}
+
+			final List<BeamState> currentBeam = beam;
+			int count = candidateStates.size();
+			double[] scores = new double[count];
+			IntStream.range(0, count).parallel().forEach(i -> {
+				scores[i] = evaluateWith(currentBeam.get(candidateStates.getInt(i)).returns, candidateStrategies.getInt(i), objective);
+			});
+
+			// best first, earlier candidate wins ties
+			int[] order = new int[count];
+			for(int i=0; i<count; i++) {
+				order[i] = i;
+			}
+			IntArrays.quickSort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(a, b));
+
+			List<BeamState> nextBeam = new ArrayList<>();
+			for(int i=0; i<count && nextBeam.size()<beamWidth; i++) {
+				BeamState parent = beam.get(candidateStates.getInt(order[i]));
+				int strategy = candidateStrategies.getInt(order[i]);
+
+				int[] members = Arrays.copyOf(parent.members, parent.members.length + 1);
+				members[parent.members.length] = strategy;
+
+				double[] sum = parent.returns.clone();
+				addRow(sum, strategy);
+
+				nextBeam.add(new BeamState(members, parent.key ^ strategyKeys[strategy], sum));
+			}
+
+			beam = nextBeam;
+		}
+
+		BeamState best = beam.get(0);
+		return toPortfolio(best.members, best.returns);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Objective of portfolio base + strategy, summed in thread's scratch vector.
+	 */
+	private double evaluateWith(double[] base, int strategy, ToDoubleFunction<PortfolioStats> objective) {
+		Scratch s = scratch.get();
+		double[] sum = s.sum;
+		System.arraycopy(base, 0, sum, 0, days);
+		addRow(sum, strategy);
+
+		computeStats(sum, s.stats);
+
+		double value = objective.applyAsDouble(s.stats);
+		return Double.isFinite(value) ? value : Double.NEGATIVE_INFINITY;
+	}
+
+	//------------------------------------------------------------------------
+
+	private void addRow(double[] sum, int strategy) {
+		int rowStart = strategy * days;
+		for(int d=0; d<days; d++) {
+			sum[d] += returns[rowStart + d];
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	private Portfolio toPortfolio(int[] members, double[] sum) {
+		PortfolioStats stats = new PortfolioStats();
+		computeStats(sum, stats);
+		return new Portfolio(members, stats);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Computes Sharpe ratio, regression R2 and stagnation of the summed daily returns.
+	 *
+	 * - Sharpe ratio is annualized mean / stdev of daily returns minus benchmark, as in SharpeRatio
+	 * - regression R2 is R-squared of the cumulative % equity regressed on business day index, negative
+	 *   for losing portfolio - unlike Stability column it uses % returns per business day, not money equity per day
+	 * - stagnation is the longest number of business days between new equity highs, unlike Stagnation
+	 *   column which counts calendar days between order close times
+	 */
+	static void computeStats(double[] daily, PortfolioStats stats) {
+		int count = daily.length;
+		if(count == 0) {
+			return;
+		}
+
+		double sum = 0, sumSq = 0;
+		double equity = 0, peak = 0;
+		int peakDay = 0, stagnation = 0;
+
+		// sums for correlation of equity with day index
+		double sumX = 0, sumXX = 0, sumY = 0, sumYY = 0, sumXY = 0;
+
+		for(int d=0; d<count; d++) {
+			double r = daily[d] - BENCHMARK;
+			sum += r;
+			sumSq += r * r;
+
+			equity += daily[d];
+			if(equity > peak) {
+				peak = equity;
+				peakDay = d;
+			} else if(d - peakDay > stagnation) {
+				stagnation = d - peakDay;
+			}
+
+			sumX += d;
+			sumXX += (double) d * d;
+			sumY += equity;
+			sumYY += equity * equity;
+			sumXY += d * equity;
+		}
+
+		double mean = sum / count;
+		double variance = count > 1 ? (sumSq - sum * mean) / (count - 1) : 0;
+		double stdev = variance > 0 ? Math.sqrt(variance) : 0;
+
+		stats.netReturn = equity;
+		stats.sharpeRatio = stdev == 0 ? 0 : Math.sqrt(252) * mean / stdev;
+		stats.stagnationBusinessDays = stagnation;
+
+		double covXY = count * sumXY - sumX * sumY;
+		double varX = count * sumXX - sumX * sumX;
+		double varY = count * sumYY - sumY * sumY;
+
+		double correlation = varX > 0 && varY > 0 ? covXY / Math.sqrt(varX * varY) : 0;
+		stats.regressionR2 = correlation * correlation * (equity < 0 ? -1 : 1);
+	}
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	public static class PortfolioStats {
+		public double netReturn;
+		public double sharpeRatio;
+		public double regressionR2;
+		public int stagnationBusinessDays;
+	}
+
+	//------------------------------------------------------------------------
+
+	public static class Portfolio {
+		public final int[] members;
+		public final PortfolioStats stats;
+
+		Portfolio(int[] members, PortfolioStats stats) {
+			this.members = members;
+			this.stats = stats;
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Per worker buffers for candidate evaluation.
+	 */
+	private static class Scratch {
+		final double[] sum;
+		final PortfolioStats stats = new PortfolioStats();
+
+		Scratch(int days) {
+			sum = new double[days];
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	private static class BeamState {
+		final int[] members;
+		final long key;
+		final double[] returns;
+
+		BeamState(int[] members, long key, double[] returns) {
+			this.members = members;
+			this.key = key;
+			this.returns = returns;
+		}
+
+		boolean contains(int strategy) {
+			for(int member : members) {
+				if(member == strategy) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
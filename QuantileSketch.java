@@ -0,0 +1,408 @@
+package SQ.Functions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch (KLL compactor hierarchy) with bounded memory.
+ *
+ * Values are added one by one, sketches built by separate workers can be merged together
+ * and the whole state can be written to / read from a stream, so it can survive between runs.
+ * Memory is O(k * log(n/k)) doubles, rank error is roughly 1.7/k.
+ *
+ * Updates and merges are not thread safe. A sketch that is not modified any more can be queried from
+ * several threads - call prepare() before sharing it, so queries don't need to build the sorted view.
+ */
+public class QuantileSketch {
+	public static final int DEFAULT_K = 200;
+
+	private static final int MIN_LEVEL_CAPACITY = 8;
+	private static final int SERIAL_VERSION = 1;
+
+	private final int k;
+
+	private double[][] levels = new double[1][];
+	private int[] levelSizes = new int[1];
+	private int numLevels = 1;
+
+	private long n = 0;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+	// alternates which half of the sorted level survives compaction
+	private boolean compactOdd = false;
+
+	// lazily built sorted view used for rank / quantile queries, replaced as a whole so concurrent
+	// readers never see values and weights of different builds
+	private volatile SortedView sortedView;
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	public QuantileSketch(int k) {
+		if(k < MIN_LEVEL_CAPACITY) {
+			throw new IllegalArgumentException("Sketch parameter k must be at least " + MIN_LEVEL_CAPACITY);
+		}
+		this.k = k;
+		levels[0] = new double[k];
+	}
+
+	//------------------------------------------------------------------------
+
+	public void update(double value) {
+		if(!Double.isFinite(value)) {
+			return;
+		}
+
+		if(n == 0) {
+			min = value;
+			max = value;
+		} else {
+			if(value < min) min = value;
+			if(value > max) max = value;
+		}
+
+		append(0, value);
+		n++;
+		sortedView = null;
+
+		compressIfNeeded();
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Merges other sketch into this one. Other sketch is not modified, it must not be this sketch.
+	 */
+	public void merge(QuantileSketch other) {
+		if(other == this) {
+			throw new IllegalArgumentException("Quantile sketch cannot be merged into itself");
+		}
+		if(other == null || other.n == 0) {
+			return;
+		}
+
+		for(int h=0; h<other.numLevels; h++) {
+			double[] items = other.levels[h];
+			for(int i=0; i<other.levelSizes[h]; i++) {
+				append(h, items[i]);
+			}
+		}
+
+		if(n == 0) {
+			min = other.min;
+			max = other.max;
+		} else {
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+		}
+
+		n += other.n;
+		sortedView = null;
+
+		compressIfNeeded();
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Returns fraction of added values that are lower or equal to given value, in 0-1 range.
+	 */
+	public double rank(double value) {
+		if(n == 0) {
+			return Double.NaN;
+		}
+
+		SortedView view = getSortedView();
+		double[] sortedValues = view.values;
+
+		// last index with sortedValue <= value
+		int lo = 0, hi = sortedValues.length - 1, idx = -1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(sortedValues[mid] <= value) {
+				idx = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+
+		return idx < 0 ? 0d : (double) view.cumWeights[idx] / n;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Returns approximate value at given quantile (0-1 range).
+	 */
+	public double quantile(double q) {
+		if(n == 0) {
+			return Double.NaN;
+		}
+		if(q <= 0) return min;
+		if(q >= 1) return max;
+
+		SortedView view = getSortedView();
+		long[] sortedCumWeights = view.cumWeights;
+
+		long target = (long) Math.ceil(q * n);
+
+		int lo = 0, hi = sortedCumWeights.length - 1;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(sortedCumWeights[mid] >= target) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+
+		return view.values[lo];
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Builds the sorted view used by rank() and quantile() up front.
+	 */
+	public void prepare() {
+		if(n > 0) {
+			getSortedView();
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	public long getCount() {
+		return n;
+	}
+
+	public boolean isEmpty() {
+		return n == 0;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	//------------------------------------------------------------------------
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(SERIAL_VERSION);
+		out.writeInt(k);
+		out.writeLong(n);
+		out.writeDouble(min);
+		out.writeDouble(max);
+		out.writeBoolean(compactOdd);
+		out.writeInt(numLevels);
+
+		for(int h=0; h<numLevels; h++) {
+			out.writeInt(levelSizes[h]);
+			for(int i=0; i<levelSizes[h]; i++) {
+				out.writeDouble(levels[h][i]);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	public static QuantileSketch readFrom(DataInput in) throws IOException {
+		int version = in.readInt();
+		if(version != SERIAL_VERSION) {
+			throw new IOException("Unsupported quantile sketch version " + version);
+		}
+
+		QuantileSketch sketch = new QuantileSketch(in.readInt());
+		sketch.n = in.readLong();
+		sketch.min = in.readDouble();
+		sketch.max = in.readDouble();
+		sketch.compactOdd = in.readBoolean();
+
+		int levelCount = in.readInt();
+		sketch.levels = new double[levelCount][];
+		sketch.levelSizes = new int[levelCount];
+		sketch.numLevels = levelCount;
+
+		for(int h=0; h<levelCount; h++) {
+			int size = in.readInt();
+			double[] items = new double[Math.max(size, MIN_LEVEL_CAPACITY)];
+			for(int i=0; i<size; i++) {
+				items[i] = in.readDouble();
+			}
+			sketch.levels[h] = items;
+			sketch.levelSizes[h] = size;
+		}
+
+		return sketch;
+	}
+
+	//------------------------------------------------------------------------
+
+	private void append(int level, double value) {
+		ensureLevel(level);
+
+		double[] items = levels[level];
+		int size = levelSizes[level];
+
+		if(size == items.length) {
+			items = Arrays.copyOf(items, Math.max(MIN_LEVEL_CAPACITY, size * 2));
+			levels[level] = items;
+		}
+
+		items[size] = value;
+		levelSizes[level] = size + 1;
+	}
+
+	//------------------------------------------------------------------------
+
+	private void ensureLevel(int level) {
+		if(level < numLevels) {
+			return;
+		}
+
+		if(level >= levels.length) {
+			levels = Arrays.copyOf(levels, level + 1);
+			levelSizes = Arrays.copyOf(levelSizes, level + 1);
+		}
+
+		for(int h=numLevels; h<=level; h++) {
+			levels[h] = new double[MIN_LEVEL_CAPACITY];
+			levelSizes[h] = 0;
+		}
+
+		numLevels = level + 1;
+	}
+
+	//------------------------------------------------------------------------
+
+	private int levelCapacity(int level) {
+		int depth = numLevels - level - 1;
+		return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(2d / 3d, depth)));
+	}
+
+	//------------------------------------------------------------------------
+
+	private void compressIfNeeded() {
+		while(true) {
+			int totalSize = 0, totalCapacity = 0;
+			for(int h=0; h<numLevels; h++) {
+				totalSize += levelSizes[h];
+				totalCapacity += levelCapacity(h);
+			}
+
+			if(totalSize <= totalCapacity) {
+				return;
+			}
+
+			for(int h=0; h<numLevels; h++) {
+				if(levelSizes[h] >= levelCapacity(h)) {
+					compactLevel(h);
+					break;
+				}
+			}
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Sorts level and promotes every other item to the level above with doubled weight.
+	 * With odd number of items the largest one stays where it is.
+	 */
+	private void compactLevel(int level) {
+		ensureLevel(level + 1);
+
+		double[] items = levels[level];
+		int size = levelSizes[level];
+
+		Arrays.sort(items, 0, size);
+
+		int pairs = size / 2;
+		int offset = compactOdd ? 1 : 0;
+		compactOdd = !compactOdd;
+
+		for(int i=0; i<pairs; i++) {
+			append(level + 1, items[2*i + offset]);
+		}
+
+		if(size % 2 == 1) {
+			items[0] = items[size - 1];
+			levelSizes[level] = 1;
+		} else {
+			levelSizes[level] = 0;
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	private SortedView getSortedView() {
+		SortedView view = sortedView;
+		if(view != null) {
+			return view;
+		}
+
+		int total = 0;
+		for(int h=0; h<numLevels; h++) {
+			total += levelSizes[h];
+		}
+
+		double[] values = new double[total];
+		long[] weights = new long[total];
+
+		int pos = 0;
+		for(int h=0; h<numLevels; h++) {
+			long weight = 1L << h;
+			for(int i=0; i<levelSizes[h]; i++) {
+				values[pos] = levels[h][i];
+				weights[pos] = weight;
+				pos++;
+			}
+		}
+
+		// sort values together with their weights
+		Integer[] order = new Integer[total];
+		for(int i=0; i<total; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+		double[] sorted = new double[total];
+		long[] cumWeights = new long[total];
+		long cum = 0;
+		for(int i=0; i<total; i++) {
+			sorted[i] = values[order[i]];
+			cum += weights[order[i]];
+			cumWeights[i] = cum;
+		}
+
+		view = new SortedView(sorted, cumWeights);
+		sortedView = view;
+		return view;
+	}
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	private static class SortedView {
+		final double[] values;
+		final long[] cumWeights;
+
+		SortedView(double[] values, long[] cumWeights) {
+			this.values = values;
+			this.cumWeights = cumWeights;
+		}
+	}
+}
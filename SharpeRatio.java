@@ -44,7 +44,7 @@ import it.unimi.dsi.fastutil.ints.Int2DoubleAVLTreeMap;
 public class SharpeRatio extends DatabankColumn {
 	public static final Logger Log = LoggerFactory.getLogger("SharpeRatio");
 	
-	private final long DAY_DURATION = 24 * 60* 60 * 1000;
+	private static final long DAY_DURATION = 24 * 60* 60 * 1000;
 	
 	//------------------------------------------------------------------------
 	//------------------------------------------------------------------------
@@ -108,7 +108,39 @@ public class SharpeRatio extends DatabankColumn {
 		int firstDateDow = SQTime.getDayOfWeek(firstDate);
 		
 		// create array of returns for every day that is not saturday/sunday
-		DoubleArrayList returns = new DoubleArrayList(100);
+		int days = getBusinessDaysCount(firstDate, lastDate);
+		DoubleArrayList returns = new DoubleArrayList(Math.max(days, 100));
+		for(int i=0; i<days; i++) {
+			returns.add(-benchmark);
+		}
+		
+		// now go through orders and add PctPL for every order
+		for(int i=0; i<ordersList.size(); i++) {
+			Order o = ordersList.get(i);
+			
+			int index = getBusinessDayIndex(o.CloseTime, firstDate, firstDateDow);
+			
+			if(index < 0 || index >= returns.size()) {
+				continue;
+			}
+			
+			double currentDayPL = returns.getDouble(index);
+			returns.set(index, currentDayPL+o.PctPL);
+		}
+		
+		return returns;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Returns number of days that are not Saturday/Sunday between firstDate (already corrected to day start) 
+	 * and lastDate. Shared with portfolio computations so that daily returns are bucketed the same way.
+	 */
+	public static int getBusinessDaysCount(long firstDate, long lastDate) {
+		int firstDateDow = SQTime.getDayOfWeek(firstDate);
+		
+		int count = 0;
 		int index = 1;
 		long startDate = firstDate;
 		while(true) {
@@ -119,7 +151,7 @@ public class SharpeRatio extends DatabankColumn {
 			}
 			if(weekIndex % 6 != 0 && weekIndex % 7 != 0) {
 				// skip Saturdays and Sundays
-				returns.add(-benchmark);
+				count++;
 			}
 			
 			index++;
@@ -131,36 +163,34 @@ public class SharpeRatio extends DatabankColumn {
 			}
 		}
 		
-		// now go through orders and add PctPL for every order
-		for(int i=0; i<ordersList.size(); i++) {
-			Order o = ordersList.get(i);
-			
-			int dow = SQTime.getDayOfWeek(o.CloseTime);
-			if(dow == 6 || dow == 7) {
-				// skip Saturdays and Sundays
-				continue;
-			}
-			
-			long closeTime = SQTime.correctDayStart(o.CloseTime);
+		return count;
+	}
 
-			index = (int) ((closeTime - firstDate) / DAY_DURATION);
-			
-			// deduct weekends
-			if(index > firstDateDow) {
-				index -= 2;
-			}
-			int weeks = index / 7;
-			index -= weeks*2;
-			
-			if(index < 0 || index >= returns.size()) {
-				continue;
-			}
-			
-			double currentDayPL = returns.getDouble(index);
-			returns.set(index, currentDayPL+o.PctPL);
+	//------------------------------------------------------------------------
+
+	/**
+	 * Returns index of the business day bucket for given close time, or -1 for Saturdays and Sundays.
+	 * Index can be out of range of getBusinessDaysCount(), caller has to check it.
+	 */
+	public static int getBusinessDayIndex(long closeTime, long firstDate, int firstDateDow) {
+		int dow = SQTime.getDayOfWeek(closeTime);
+		if(dow == 6 || dow == 7) {
+			// skip Saturdays and Sundays
+			return -1;
 		}
 		
-		return returns;
+		long dayStart = SQTime.correctDayStart(closeTime);
+
+		int index = (int) ((dayStart - firstDate) / DAY_DURATION);
+		
+		// deduct weekends
+		if(index > firstDateDow) {
+			index -= 2;
+		}
+		int weeks = index / 7;
+		index -= weeks*2;
+		
+		return index;
 	}
 
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ import com.strategyquant.lib.SQTime;
 import com.strategyquant.lib.SQUtils;
 import com.strategyquant.lib.SettingsMap;
 import com.strategyquant.tradinglib.DatabankColumn;
+import com.strategyquant.tradinglib.Directions;
 import com.strategyquant.tradinglib.Order;
 import com.strategyquant.tradinglib.OrdersList;
 import com.strategyquant.tradinglib.SQStats;
@@ -161,7 +162,189 @@ public class Stagnation extends DatabankColumn {
 
 	//------------------------------------------------------------------------
 
-	private long correctStagnationEndTime(long startTime, long endTime, OutOfSample oosPeriods, byte sampleType) {
+	/**
+	 * Computes stagnation for several stats type combinations (direction x PL type x sample type) 
+	 * in a single pass over the orders - every combination has its own peak/stagnation state.
+	 * 
+	 * Unlike compute(), which gets orders already filtered for its combination, ordersList here contains
+	 * all orders of the strategy; orders are skipped per combination by direction and by sample type 
+	 * (order close time inside / outside of the ChartOOS ranges). Results are the same as compute() 
+	 * called with filtered orders for every combination.
+	 * 
+	 * STAGNATION_FROM, STAGNATION_TO and STAGNATION_PERIOD_PCT are set to stats of each combination.
+	 * 
+	 * @param stats stats for every combination, in the same order as combinations
+	 * @return stagnation in days for every combination
+	 */
+	public double[] computeBatch(SQStats[] stats, StatsTypeCombination[] combinations, OrdersList ordersList, SettingsMap settings) throws Exception {
+		int count = combinations.length;
+		int ordersCount = ordersList.size();
+
+		// indexes of orders, -1 means no order
+		int[] firstOrder = new int[count];
+		int[] lastOrder = new int[count];
+		int[] bestStagnationFirstOrder = new int[count];
+		int[] bestStagnationLastOrder = new int[count];
+		int[] peakOrder = new int[count];
+
+		long[] bestStagnationPeriod = new long[count];
+		double[] accountBalance = new double[count];
+		double[] latestProfitHigh = new double[count];
+		boolean[] stagnationActive = new boolean[count];
+		byte[] directions = new byte[count];
+		byte[] sampleTypes = new byte[count];
+
+		for(int c=0; c<count; c++) {
+			firstOrder[c] = -1;
+			lastOrder[c] = -1;
+			bestStagnationFirstOrder[c] = -1;
+			bestStagnationLastOrder[c] = -1;
+			peakOrder[c] = -1;
+			directions[c] = combinations[c].getDirection();
+			sampleTypes[c] = combinations[c].getSampleType();
+		}
+
+		OutOfSample oosPeriods = (OutOfSample) settings.get("ChartOOS");
+
+		// go through orders once, updating all combinations
+		for(int i=0; i<ordersCount; i++) {
+			Order order = ordersList.get(i);
+
+			boolean isLong = order.isLong();
+			boolean isOOS = isInOutOfSample(order.CloseTime, oosPeriods);
+
+			for(int c=0; c<count; c++) {
+				if((directions[c] == Directions.Long && !isLong) || (directions[c] == Directions.Short && isLong)) {
+					continue;
+				}
+				if((sampleTypes[c] == SampleTypes.InSample && isOOS) || (sampleTypes[c] == SampleTypes.OutOfSample && !isOOS)) {
+					continue;
+				}
+
+				if(firstOrder[c] < 0) {
+					firstOrder[c] = i;
+					peakOrder[c] = i;
+				}
+				lastOrder[c] = i;
+
+				double pl = getPLByStatsType(order, combinations[c]);
+
+				accountBalance[c] += pl;
+
+				int peak = peakOrder[c];
+				long endTime = stagnationActive[c] ? correctStagnationEndTime(ordersList.get(peak).CloseTime, order.CloseTime, oosPeriods, sampleTypes[c]) : order.CloseTime;
+
+				if(accountBalance[c] > latestProfitHigh[c] || endTime != order.CloseTime) {
+					if(stagnationActive[c]) {
+						// there was drawdown and now we are going up
+						long stagnationPeriod = endTime - ordersList.get(peak).CloseTime;
+
+						if(stagnationPeriod > bestStagnationPeriod[c]) {
+							bestStagnationFirstOrder[c] = peak;
+							bestStagnationLastOrder[c] = i;
+							bestStagnationPeriod[c] = stagnationPeriod;
+						}
+					}
+
+					peakOrder[c] = i;
+					latestProfitHigh[c] = accountBalance[c];
+					stagnationActive[c] = false;
+				}
+				else {
+					stagnationActive[c] = true;
+				}
+			}
+		}
+
+		double[] results = new double[count];
+
+		for(int c=0; c<count; c++) {
+			Order veryLastOrder = lastOrder[c] >= 0 ? ordersList.get(lastOrder[c]) : null;
+
+			int totalDays;
+
+			if(veryLastOrder == null) {
+				totalDays = 0;
+			} else {
+				totalDays = SQTime.getDaysBetween(ordersList.get(firstOrder[c]).OpenTime, veryLastOrder.CloseTime);
+			}
+
+			long stagnationPeriod;
+
+			// compute max new high duration
+			long stagnationFrom=0;
+			long stagnationTo=0;
+
+			int peak = peakOrder[c];
+
+			if(stagnationActive[c] && veryLastOrder != null && peak >= 0) {
+				long startTime = ordersList.get(peak).CloseTime;
+				long endTime = correctStagnationEndTime(startTime, veryLastOrder.CloseTime, oosPeriods, sampleTypes[c]);
+
+				stagnationPeriod = endTime - startTime;
+
+				if(stagnationPeriod > bestStagnationPeriod[c]) {
+					bestStagnationFirstOrder[c] = peak;
+					bestStagnationLastOrder[c] = lastOrder[c];
+					bestStagnationPeriod[c] = stagnationPeriod;
+				}
+			}
+
+			// when there was no stagnation, first order stays unset and last is the very last order
+			Order bestFirst = bestStagnationFirstOrder[c] >= 0 ? ordersList.get(bestStagnationFirstOrder[c]) : null;
+			Order bestLast = bestStagnationLastOrder[c] >= 0 ? ordersList.get(bestStagnationLastOrder[c]) : veryLastOrder;
+
+			if(bestFirst != null) {
+				stagnationFrom = bestFirst.CloseTime;
+			}
+
+			if(bestLast != null) {
+				stagnationTo = correctStagnationEndTime(stagnationFrom, bestLast.CloseTime, oosPeriods, sampleTypes[c]);
+			} else {
+				stagnationTo = 0;
+			}
+
+			if(stagnationFrom != 0 && stagnationTo != 0) {
+				stagnationPeriod = SQTime.getDaysBetween(stagnationFrom, stagnationTo);
+			} else {
+				stagnationPeriod = 0;
+			}
+
+			stats[c].set(StatsKey.STAGNATION_FROM, stagnationFrom);
+			stats[c].set(StatsKey.STAGNATION_TO, stagnationTo);
+
+			double stagnationPeriodPct = SQUtils.safeDivide(stagnationPeriod, totalDays) * 100d;
+			stats[c].set(StatsKey.STAGNATION_PERIOD_PCT, round2(stagnationPeriodPct));
+
+			results[c] = (int) stagnationPeriod;
+		}
+
+		return results;
+	}
+
+	//------------------------------------------------------------------------
+
+	private boolean isInOutOfSample(long time, OutOfSample oosPeriods) {
+		if(oosPeriods == null) return false;
+
+		int count = oosPeriods.getRangesCount();
+
+		for(int a=0; a<count; a++) {
+			if(time >= oosPeriods.getDateFrom(a) && time <= oosPeriods.getDateTo(a)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Cuts stagnation end time at the boundary of the sample the stagnation started in, so that
+	 * stagnation doesn't run across OOS (for InSample) or IS (for OutOfSample) periods.
+	 * Shared with trade resampling so that resampled stagnation is corrected the same way.
+	 */
+	public static long correctStagnationEndTime(long startTime, long endTime, OutOfSample oosPeriods, byte sampleType) {
 		if(oosPeriods == null) return endTime;
 
 		int count = oosPeriods.getRangesCount();
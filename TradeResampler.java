@@ -0,0 +1,292 @@
+package SQ.Functions;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import com.strategyquant.lib.SQTime;
+import com.strategyquant.tradinglib.Order;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.SampleTypes;
+import com.strategyquant.tradinglib.strategy.OutOfSample;
+
+import SQ.Columns.Databanks.SharpeRatio;
+import SQ.Columns.Databanks.Stagnation;
+
+/**
+ * Monte Carlo resampling of strategy trades for robustness checks.
+ *
+ * Trades are reshuffled (or bootstrapped with replacement) N times and assigned to the original
+ * close times, and for every iteration net profit, max drawdown, stagnation and Sharpe ratio are
+ * recomputed. Trades are kept in primitive arrays, every worker has its own SplittableRandom and
+ * scratch arrays, so the iterations themselves don't allocate.
+ */
+public class TradeResampler {
+	public static final int MODE_SHUFFLE = 0;
+	public static final int MODE_BOOTSTRAP = 1;
+
+	private static final double BENCHMARK = 0.05/252;
+
+	// iterations per worker task
+	private static final int CHUNK_SIZE = 32;
+
+	// per worker scratch arrays, shared by all resamplers and grown to the largest strategy seen
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	private final int n;
+	private final double[] pl;
+	private final double[] pctPL;
+	private final long[] closeTime;
+
+	// OOS ranges of the strategy, stagnation of in-sample trades is cut at their boundaries
+	private final OutOfSample oosPeriods;
+
+	// business day bucket of every trade slot for Sharpe ratio, -1 for weekends
+	private final int[] dayIndex;
+	private final int days;
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	/**
+	 * @param ordersList orders of the strategy, in close time order
+	 */
+	public TradeResampler(OrdersList ordersList) {
+		this(ordersList, null);
+	}
+
+	/**
+	 * @param ordersList in-sample orders of the strategy, in close time order
+	 * @param oosPeriods OOS ranges (ChartOOS setting), null if there are none
+	 */
+	public TradeResampler(OrdersList ordersList, OutOfSample oosPeriods) {
+		this.oosPeriods = oosPeriods;
+		n = ordersList == null ? 0 : ordersList.size();
+
+		pl = new double[n];
+		pctPL = new double[n];
+		closeTime = new long[n];
+		dayIndex = new int[n];
+
+		long firstDate = Long.MAX_VALUE;
+		long lastDate = -1;
+
+		for(int i=0; i<n; i++) {
+			Order o = ordersList.get(i);
+			pl[i] = o.PL;
+			pctPL[i] = o.PctPL;
+			closeTime[i] = o.CloseTime;
+
+			if(o.CloseTime < firstDate) firstDate = o.CloseTime;
+			if(o.CloseTime > lastDate) lastDate = o.CloseTime;
+		}
+
+		if(n == 0) {
+			days = 0;
+		} else {
+			firstDate = SQTime.correctDayStart(firstDate);
+			int firstDateDow = SQTime.getDayOfWeek(firstDate);
+
+			days = SharpeRatio.getBusinessDaysCount(firstDate, lastDate);
+
+			for(int i=0; i<n; i++) {
+				int index = SharpeRatio.getBusinessDayIndex(closeTime[i], firstDate, firstDateDow);
+				dayIndex[i] = index < 0 || index >= days ? -1 : index;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	public int getTradesCount() {
+		return n;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Runs given number of resampling iterations in parallel. Results are deterministic for given seed.
+	 */
+	public Samples simulate(int iterations, int mode, long seed) {
+		Samples samples = new Samples(iterations);
+		if(n == 0 || iterations <= 0) {
+			return samples;
+		}
+
+		int chunks = (iterations + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+		// SplittableRandom is not thread safe, split generators for workers up front
+		SplittableRandom master = new SplittableRandom(seed);
+		SplittableRandom[] randoms = new SplittableRandom[chunks];
+		for(int c=0; c<chunks; c++) {
+			randoms[c] = master.split();
+		}
+
+		IntStream.range(0, chunks).parallel().forEach(c -> {
+			SplittableRandom random = randoms[c];
+
+			Scratch scratch = SCRATCH.get();
+			scratch.ensureCapacity(n, days);
+			int[] perm = scratch.perm;
+			double[] daily = scratch.daily;
+
+			// every chunk starts from identity, so results don't depend on which worker ran it
+			for(int i=0; i<n; i++) {
+				perm[i] = i;
+			}
+
+			int to = Math.min(iterations, (c + 1) * CHUNK_SIZE);
+			for(int it=c*CHUNK_SIZE; it<to; it++) {
+				if(mode == MODE_BOOTSTRAP) {
+					for(int i=0; i<n; i++) {
+						perm[i] = random.nextInt(n);
+					}
+				} else {
+					for(int i=n-1; i>0; i--) {
+						int j = random.nextInt(i + 1);
+						int tmp = perm[i];
+						perm[i] = perm[j];
+						perm[j] = tmp;
+					}
+				}
+
+				runIteration(perm, daily, samples, it);
+			}
+		});
+
+		return samples;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Runs one iteration with given trade order, for tests.
+	 */
+	Samples replay(int[] perm) {
+		Samples samples = new Samples(1);
+		runIteration(perm, new double[days], samples, 0);
+		return samples;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Walks trades in perm order over the original close times. Drawdown and stagnation follow
+	 * the Drawdown and Stagnation columns (in-sample, with end times cut at OOS ranges), Sharpe ratio
+	 * follows SharpeRatio.
+	 */
+	private void runIteration(int[] perm, double[] daily, Samples samples, int it) {
+		Arrays.fill(daily, 0, days, -BENCHMARK);
+
+		double balance = 0, high = 0, drawdown = 0;
+
+		// like Stagnation column, high is reset when stagnation is cut at OOS range
+		double stagnationHigh = 0;
+		int peakSlot = 0;
+		boolean stagnationActive = false;
+		long bestPeriod = 0, bestFrom = 0, bestTo = 0;
+
+		for(int i=0; i<n; i++) {
+			int trade = perm[i];
+			balance += pl[trade];
+
+			if(balance > high) {
+				high = balance;
+			} else if(high - balance > drawdown) {
+				drawdown = high - balance;
+			}
+
+			long endTime = stagnationActive ? correctEndTime(closeTime[peakSlot], closeTime[i]) : closeTime[i];
+
+			if(balance > stagnationHigh || endTime != closeTime[i]) {
+				if(stagnationActive && endTime - closeTime[peakSlot] > bestPeriod) {
+					bestPeriod = endTime - closeTime[peakSlot];
+					bestFrom = closeTime[peakSlot];
+					bestTo = endTime;
+				}
+				stagnationHigh = balance;
+				peakSlot = i;
+				stagnationActive = false;
+			} else {
+				stagnationActive = true;
+			}
+
+			int day = dayIndex[i];
+			if(day >= 0) {
+				daily[day] += pctPL[trade];
+			}
+		}
+
+		if(stagnationActive) {
+			long endTime = correctEndTime(closeTime[peakSlot], closeTime[n-1]);
+			if(endTime - closeTime[peakSlot] > bestPeriod) {
+				bestPeriod = endTime - closeTime[peakSlot];
+				bestFrom = closeTime[peakSlot];
+				bestTo = endTime;
+			}
+		}
+
+		double sum = 0, sumSq = 0;
+		for(int d=0; d<days; d++) {
+			sum += daily[d];
+			sumSq += daily[d] * daily[d];
+		}
+		double mean = days > 0 ? sum / days : 0;
+		double variance = days > 1 ? (sumSq - sum * mean) / (days - 1) : 0;
+		double stdev = variance > 0 ? Math.sqrt(variance) : 0;
+
+		samples.netProfit[it] = balance;
+		samples.drawdown[it] = drawdown;
+		samples.stagnationDays[it] = bestPeriod > 0 ? SQTime.getDaysBetween(bestFrom, bestTo) : 0;
+		samples.sharpeRatio[it] = stdev == 0 ? 0 : Math.sqrt(252) * mean / stdev;
+	}
+
+	//------------------------------------------------------------------------
+
+	private long correctEndTime(long startTime, long endTime) {
+		return oosPeriods == null ? endTime : Stagnation.correctStagnationEndTime(startTime, endTime, oosPeriods, SampleTypes.InSample);
+	}
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	private static class Scratch {
+		int[] perm = new int[0];
+		double[] daily = new double[0];
+
+		void ensureCapacity(int trades, int days) {
+			if(perm.length < trades) {
+				perm = new int[trades];
+			}
+			if(daily.length < days) {
+				daily = new double[days];
+			}
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Results of all iterations, one item per iteration.
+	 */
+	public static class Samples {
+		public final double[] netProfit;
+		public final double[] drawdown;
+		public final double[] sharpeRatio;
+		public final int[] stagnationDays;
+
+		Samples(int iterations) {
+			int size = Math.max(iterations, 0);
+			netProfit = new double[size];
+			drawdown = new double[size];
+			sharpeRatio = new double[size];
+			stagnationDays = new int[size];
+		}
+
+		public int size() {
+			return netProfit.length;
+		}
+	}
+}
@@ -0,0 +1,412 @@
+package SQ.Functions;
+
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+import com.strategyquant.lib.SQTime;
+import com.strategyquant.tradinglib.Order;
+import com.strategyquant.tradinglib.OrdersList;
+
+/**
+ * Precomputed per-strategy structure answering ProfitFactor, RExpectancy, ReturnDDRatio and Stagnation
+ * for any time range of trades in O(log n), so a whole walk-forward matrix costs one pass over the trades
+ * plus a logarithmic query per window.
+ *
+ * - prefix sums of net profit, gross profit / loss and trade counts
+ * - segment tree over the equity curve storing max, min and max drawdown of each segment
+ * - binary lifting over "next new equity high" pointers for the longest stagnation
+ *
+ * Window metrics are computed the same way as the databank columns, with equity starting from zero
+ * at the first trade of the window. Stagnation is not corrected for OOS periods here, window is taken
+ * as one continuous range.
+ *
+ * Window sums are differences of whole history prefix sums, so they round differently than sums
+ * over the window only:
+ * - equity within EQUITY_TOLERANCE of the peak is not a new high, so returning exactly to an earlier
+ *   peak (common with PL in whole cents) ends stagnation as in Stagnation column
+ * - ratios exactly on the rounding boundary (e.g. Ret/DD 4.545) can differ from the column by one
+ *   unit of the last rounded digit
+ *
+ * Memory is O(n log n) - jump / gapStart keep two ints per trade and level, about 13 MB for a 100k trade
+ * strategy. Stagnation is not stored per segment tree node as one value, because the stagnation of
+ * a segment depends on the peak reached before it; the binary lifting answers it in O(log n) instead.
+ *
+ * Usage:
+ * <pre>
+ * WalkForwardRangeIndex index = new WalkForwardRangeIndex(ordersList, o -> o.PL);
+ * WalkForwardRangeIndex.WindowStats ws = index.query(windowFrom, windowTo);
+ * double pf = ws.getProfitFactor();
+ * </pre>
+ */
+public class WalkForwardRangeIndex {
+	// relative tolerance of equity comparisons, far above rounding error and far below one cent
+	private static final double EQUITY_TOLERANCE = 1e-9;
+
+	private final int n;
+
+	private final long[] closeTime;
+
+	// prefix arrays have n+1 items, value at i is sum over trades 0..i-1
+	private final double[] equity;
+	private final double tolerance;
+	private final double[] grossProfit;
+	private final double[] grossLoss;
+	private final int[] wins;
+	private final int[] losses;
+
+	// segment tree over equity[0..n]
+	private final int treeSize;
+	private final double[] treeMax;
+	private final double[] treeMin;
+	private final double[] treeDrop;
+
+	// jump[k][t] - trade reached after 2^k new-high jumps from trade t (n if none)
+	// gapStart[k][t] - trade where the longest gap along those jumps starts
+	private final int[][] jump;
+	private final int[][] gapStart;
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	/**
+	 * @param ordersList orders of the strategy, in close time order
+	 * @param plFunction PL of the order for required PL type (money, pips, %)
+	 */
+	public WalkForwardRangeIndex(OrdersList ordersList, ToDoubleFunction<Order> plFunction) {
+		n = ordersList == null ? 0 : ordersList.size();
+
+		closeTime = new long[n];
+		equity = new double[n + 1];
+		grossProfit = new double[n + 1];
+		grossLoss = new double[n + 1];
+		wins = new int[n + 1];
+		losses = new int[n + 1];
+
+		for(int i=0; i<n; i++) {
+			Order order = ordersList.get(i);
+			double pl = plFunction.applyAsDouble(order);
+
+			closeTime[i] = order.CloseTime;
+
+			equity[i+1] = equity[i] + pl;
+			grossProfit[i+1] = grossProfit[i] + (pl > 0 ? pl : 0);
+			grossLoss[i+1] = grossLoss[i] + (pl < 0 ? -pl : 0);
+			wins[i+1] = wins[i] + (pl > 0 ? 1 : 0);
+			losses[i+1] = losses[i] + (pl < 0 ? 1 : 0);
+		}
+
+		double maxAbsEquity = 0;
+		for(int i=0; i<=n; i++) {
+			maxAbsEquity = Math.max(maxAbsEquity, Math.abs(equity[i]));
+		}
+		tolerance = EQUITY_TOLERANCE * Math.max(1, maxAbsEquity);
+
+		// segment tree
+		int size = 1;
+		while(size < n + 1) {
+			size <<= 1;
+		}
+		treeSize = size;
+		treeMax = new double[2 * size];
+		treeMin = new double[2 * size];
+		treeDrop = new double[2 * size];
+
+		Arrays.fill(treeMax, Double.NEGATIVE_INFINITY);
+		Arrays.fill(treeMin, Double.POSITIVE_INFINITY);
+
+		for(int i=0; i<=n; i++) {
+			treeMax[size + i] = equity[i];
+			treeMin[size + i] = equity[i];
+		}
+		for(int node=size-1; node>=1; node--) {
+			int l = 2 * node, r = l + 1;
+			treeMax[node] = Math.max(treeMax[l], treeMax[r]);
+			treeMin[node] = Math.min(treeMin[l], treeMin[r]);
+			treeDrop[node] = Math.max(Math.max(treeDrop[l], treeDrop[r]), treeMax[l] - treeMin[r]);
+		}
+
+		// next new equity high after every trade, using monotonic stack
+		int[] next = new int[n];
+		int[] stack = new int[n];
+		int stackSize = 0;
+		for(int t=n-1; t>=0; t--) {
+			while(stackSize > 0 && equity[stack[stackSize-1] + 1] <= equity[t + 1] + tolerance) {
+				stackSize--;
+			}
+			next[t] = stackSize > 0 ? stack[stackSize-1] : n;
+			stack[stackSize++] = t;
+		}
+
+		int levels = 1;
+		while((1 << levels) < Math.max(n, 1)) {
+			levels++;
+		}
+
+		jump = new int[levels][];
+		gapStart = new int[levels][];
+		jump[0] = next;
+		gapStart[0] = new int[n];
+		for(int t=0; t<n; t++) {
+			gapStart[0][t] = t;
+		}
+
+		for(int k=1; k<levels; k++) {
+			int[] prevJump = jump[k-1];
+			int[] prevGap = gapStart[k-1];
+			int[] curJump = new int[n];
+			int[] curGap = new int[n];
+
+			for(int t=0; t<n; t++) {
+				int mid = prevJump[t];
+				if(mid >= n) {
+					curJump[t] = n;
+					curGap[t] = prevGap[t];
+				} else {
+					curJump[t] = prevJump[mid];
+					curGap[t] = gapLength(prevGap[t]) >= gapLength(prevGap[mid]) ? prevGap[t] : prevGap[mid];
+				}
+			}
+
+			jump[k] = curJump;
+			gapStart[k] = curGap;
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	public int getTradesCount() {
+		return n;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Computes stats for trades closed in given time range (both inclusive).
+	 */
+	public WindowStats query(long dateFrom, long dateTo) {
+		int first = lowerBound(dateFrom);
+		int last = lowerBound(dateTo == Long.MAX_VALUE ? dateTo : dateTo + 1) - 1;
+
+		return queryTrades(first, last);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Computes stats for trades with indexes first..last (both inclusive).
+	 */
+	public WindowStats queryTrades(int first, int last) {
+		WindowStats ws = new WindowStats();
+
+		if(first < 0) first = 0;
+		if(last >= n) last = n - 1;
+
+		if(first > last) {
+			return ws;
+		}
+
+		ws.numberOfTrades = last - first + 1;
+		ws.netProfit = equity[last+1] - equity[first];
+		ws.grossProfit = grossProfit[last+1] - grossProfit[first];
+		ws.grossLoss = grossLoss[last+1] - grossLoss[first];
+		ws.wins = wins[last+1] - wins[first];
+		ws.losses = losses[last+1] - losses[first];
+		ws.drawdown = maxDrawdown(first, last + 1);
+
+		computeStagnation(first, last, ws);
+
+		return ws;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Max drop between two equity points lo <= i <= j <= hi.
+	 */
+	private double maxDrawdown(int lo, int hi) {
+		double leftMax = Double.NEGATIVE_INFINITY, leftMin = Double.POSITIVE_INFINITY, leftDrop = 0;
+		double rightMax = Double.NEGATIVE_INFINITY, rightMin = Double.POSITIVE_INFINITY, rightDrop = 0;
+
+		int l = lo + treeSize;
+		int r = hi + treeSize + 1;
+
+		while(l < r) {
+			if((l & 1) == 1) {
+				leftDrop = Math.max(Math.max(leftDrop, treeDrop[l]), leftMax - treeMin[l]);
+				leftMax = Math.max(leftMax, treeMax[l]);
+				leftMin = Math.min(leftMin, treeMin[l]);
+				l++;
+			}
+			if((r & 1) == 1) {
+				r--;
+				rightDrop = Math.max(Math.max(treeDrop[r], rightDrop), treeMax[r] - rightMin);
+				rightMax = Math.max(treeMax[r], rightMax);
+				rightMin = Math.min(treeMin[r], rightMin);
+			}
+			l >>= 1;
+			r >>= 1;
+		}
+
+		return Math.max(Math.max(leftDrop, rightDrop), leftMax - rightMin);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Longest period between new equity highs, same as Stagnation column - peak starts at the first trade
+	 * of the window, only periods with at least one trade below the peak count, and the last open stagnation
+	 * lasts until the last trade of the window. When there is no stagnation, from / to are zero.
+	 */
+	private void computeStagnation(int first, int last, WindowStats ws) {
+		long bestFrom = closeTime[first];
+		long bestTo = closeTime[last];
+
+		// first trade making new high above starting equity
+		int record = firstAbove(first + 1, last + 1, equity[first] + tolerance) - 1;
+
+		if(record <= last) {
+			bestTo = closeTime[record];
+
+			int t = record;
+			for(int k=jump.length-1; k>=0; k--) {
+				int target = jump[k][t];
+				if(target <= last) {
+					int start = gapStart[k][t];
+					if(gapLength(start) > bestTo - bestFrom) {
+						bestFrom = closeTime[start];
+						bestTo = closeTime[jump[0][start]];
+					}
+					t = target;
+				}
+			}
+
+			// open stagnation at the end of the window
+			if(closeTime[last] - closeTime[t] > bestTo - bestFrom) {
+				bestFrom = closeTime[t];
+				bestTo = closeTime[last];
+			}
+		}
+
+		if(bestTo - bestFrom <= 0) {
+			return;
+		}
+
+		ws.stagnationFrom = bestFrom;
+		ws.stagnationTo = bestTo;
+		ws.stagnationDays = SQTime.getDaysBetween(bestFrom, bestTo);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Period from trade to the next new high, zero if the next trade is already a new high.
+	 */
+	private long gapLength(int trade) {
+		int next = jump[0][trade];
+		return next >= n || next == trade + 1 ? 0 : closeTime[next] - closeTime[trade];
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * First equity index in lo..hi with value strictly above threshold, or hi+1 if there is none.
+	 */
+	private int firstAbove(int lo, int hi, double threshold) {
+		int result = firstAbove(1, 0, treeSize - 1, lo, hi, threshold);
+		return result < 0 ? hi + 1 : result;
+	}
+
+	private int firstAbove(int node, int nodeLo, int nodeHi, int lo, int hi, double threshold) {
+		if(nodeHi < lo || nodeLo > hi || treeMax[node] <= threshold) {
+			return -1;
+		}
+		if(nodeLo == nodeHi) {
+			return nodeLo;
+		}
+
+		int mid = (nodeLo + nodeHi) >>> 1;
+		int result = firstAbove(2 * node, nodeLo, mid, lo, hi, threshold);
+		if(result < 0) {
+			result = firstAbove(2 * node + 1, mid + 1, nodeHi, lo, hi, threshold);
+		}
+		return result;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * First trade index with close time >= time.
+	 */
+	private int lowerBound(long time) {
+		int lo = 0, hi = n;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(closeTime[mid] < time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+	//------------------------------------------------------------------------
+
+	/**
+	 * Stats of one time window. Ratios follow the ProfitFactor, RExpectancy and ReturnDDRatio columns.
+	 */
+	public static class WindowStats {
+		public int numberOfTrades;
+		public int wins;
+		public int losses;
+		public double netProfit;
+		public double grossProfit;
+		public double grossLoss;
+		public double drawdown;
+		public long stagnationFrom;
+		public long stagnationTo;
+		public int stagnationDays;
+
+		public double getProfitFactor() {
+			if(numberOfTrades == 0) {
+				return 0;
+			}
+			if(grossLoss == 0) {
+				return netProfit == 0 ? 0 : 5d;
+			}
+			return round(grossProfit / grossLoss, 100);
+		}
+
+		public double getRExpectancy() {
+			if(numberOfTrades == 0) {
+				return 0;
+			}
+			double avgLoss = losses == 0 ? 0 : grossLoss / losses;
+			if(avgLoss == 0) {
+				return 99999;
+			}
+			return round(netProfit / (numberOfTrades * avgLoss), 10000);
+		}
+
+		public double getReturnDDRatio() {
+			if(numberOfTrades == 0) {
+				return 0;
+			}
+			if(drawdown == 0) {
+				return netProfit == 0 ? 0 : 10d;
+			}
+			return round(netProfit / drawdown, 100);
+		}
+
+		public int getStagnation() {
+			return stagnationDays;
+		}
+
+		private static double round(double value, double precision) {
+			return Math.round(value * precision) / precision;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package SQ.Columns.Databanks;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.strategyquant.lib.SettingsMap;
+import com.strategyquant.tradinglib.DatabankColumn;
+import com.strategyquant.tradinglib.Directions;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.PlTypes;
+import com.strategyquant.tradinglib.SQStats;
+import com.strategyquant.tradinglib.SampleTypes;
+import com.strategyquant.tradinglib.StatsKey;
+import com.strategyquant.tradinglib.StatsTypeCombination;
+
+import SQ.Testing.Allocations;
+import SQ.Testing.GoldenValues;
+import SQ.Testing.PerfBudget;
+import SQ.Testing.SyntheticOrders;
+
+/**
+ * Regression gate for databank columns - every column's compute() is run on fixed synthetic order lists
+ * of 1k / 10k / 100k trades and checked against golden values, allocation budget per call and
+ * scaling budget of time per call for every 10x more trades (src/test/resources/perf-budget.properties).
+ */
+public class ColumnPerformanceTest {
+	private static final int[] SIZES = { 1000, 10000, 100000 };
+	private static final long SEED = 20240101L;
+
+	// timing rounds per size, median is used
+	private static final int TIMING_ROUNDS = 7;
+	private static final long TIMING_ROUND_NANOS = 10_000_000L;
+
+	private static final StatsTypeCombination COMBINATION = new StatsTypeCombination(Directions.Both, PlTypes.Money, SampleTypes.InSample);
+
+	private static final Map<Integer, OrdersList> orders = new LinkedHashMap<>();
+	private static final Map<Integer, SQStats> stats = new LinkedHashMap<>();
+	private static final SettingsMap settings = new SettingsMap();
+
+	private static final GoldenValues golden = new GoldenValues("columns");
+
+	//------------------------------------------------------------------------
+
+	@BeforeAll
+	public static void createOrders() {
+		for(int size : SIZES) {
+			OrdersList ordersList = SyntheticOrders.create(size, SEED + size);
+			orders.put(size, ordersList);
+			stats.put(size, SyntheticOrders.computeStats(ordersList));
+		}
+	}
+
+	@AfterAll
+	public static void saveGolden() throws Exception {
+		golden.save();
+	}
+
+	private static DatabankColumn[] columns() {
+		return new DatabankColumn[] { new ProfitFactor(), new RExpectancy(), new ReturnDDRatio(), new SharpeRatio(), new Stability(), new Stagnation() };
+	}
+
+	private static String name(DatabankColumn column) {
+		return column.getClass().getSimpleName();
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void valuesMatchGolden() throws Exception {
+		for(DatabankColumn column : columns()) {
+			for(int size : SIZES) {
+				SQStats s = stats.get(size);
+				double value = column.compute(s, COMBINATION, orders.get(size), settings, null, null);
+
+				golden.check(name(column) + "." + size, value);
+			}
+		}
+
+		for(int size : SIZES) {
+			SQStats s = stats.get(size);
+			golden.check("Stagnation." + size + ".from", s.getDouble(StatsKey.STAGNATION_FROM));
+			golden.check("Stagnation." + size + ".to", s.getDouble(StatsKey.STAGNATION_TO));
+			golden.check("Stagnation." + size + ".pct", s.getDouble(StatsKey.STAGNATION_PERIOD_PCT));
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void allocationWithinBudget(TestReporter reporter) throws Exception {
+		for(DatabankColumn column : columns()) {
+			for(int size : SIZES) {
+				SQStats s = stats.get(size);
+				OrdersList ordersList = orders.get(size);
+				int calls = Math.max(5, 200000 / size);
+
+				long bytes = Allocations.bytesPerCall(calls, calls, () -> column.compute(s, COMBINATION, ordersList, settings, null, null));
+
+				PerfBudget.check(reporter, name(column) + ".bytesPerCall." + size, bytes);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Every size is warmed up first, then sizes are timed in interleaved rounds and the median of rounds
+	 * is used, so JIT compilation and test order don't decide the result. Both 10k / 1k and 100k / 10k
+	 * ratios are checked against the per 10x budget.
+	 */
+	@Test
+	public void scalingWithinBudget(TestReporter reporter) throws Exception {
+		for(DatabankColumn column : columns()) {
+			Allocations.Call[] calls = new Allocations.Call[SIZES.length];
+			for(int i=0; i<SIZES.length; i++) {
+				SQStats s = stats.get(SIZES[i]);
+				OrdersList ordersList = orders.get(SIZES[i]);
+				calls[i] = () -> column.compute(s, COMBINATION, ordersList, settings, null, null);
+			}
+
+			for(Allocations.Call call : calls) {
+				Allocations.nanosPerCall(3, TIMING_ROUND_NANOS, call);
+			}
+
+			double[][] rounds = new double[SIZES.length][TIMING_ROUNDS];
+			for(int r=0; r<TIMING_ROUNDS; r++) {
+				for(int i=0; i<SIZES.length; i++) {
+					rounds[i][r] = Allocations.nanosPerCall(1, TIMING_ROUND_NANOS, calls[i]);
+				}
+			}
+
+			String key = name(column) + ".maxScalingPer10x";
+			for(int i=1; i<SIZES.length; i++) {
+				double ratio = median(rounds[i]) / median(rounds[i-1]);
+				PerfBudget.check(reporter, name(column) + ".scaling." + SIZES[i] + "/" + SIZES[i-1], key, ratio);
+			}
+		}
+	}
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
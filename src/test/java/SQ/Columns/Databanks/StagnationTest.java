@@ -0,0 +1,94 @@
+package SQ.Columns.Databanks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.strategyquant.lib.SettingsMap;
+import com.strategyquant.tradinglib.Directions;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.PlTypes;
+import com.strategyquant.tradinglib.SQStats;
+import com.strategyquant.tradinglib.SampleTypes;
+import com.strategyquant.tradinglib.StatsKey;
+import com.strategyquant.tradinglib.StatsTypeCombination;
+import com.strategyquant.tradinglib.strategy.OutOfSample;
+
+import SQ.Testing.SyntheticOrders;
+
+/**
+ * Stagnation.computeBatch() over all orders must give the same results as compute() called
+ * with orders filtered for every combination, the way SQX calls it.
+ */
+public class StagnationTest {
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	private static final byte[] DIRECTIONS = { Directions.Both, Directions.Long, Directions.Short };
+	private static final byte[] PL_TYPES = { PlTypes.Money, PlTypes.Percent };
+	private static final byte[] SAMPLE_TYPES = { SampleTypes.FullSample, SampleTypes.InSample, SampleTypes.OutOfSample };
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void batchMatchesComputeWithOOS() throws Exception {
+		OutOfSample oos = new OutOfSample(
+			new long[] { SyntheticOrders.START_TIME + 300 * DAY, SyntheticOrders.START_TIME + 1200 * DAY },
+			new long[] { SyntheticOrders.START_TIME + 500 * DAY, SyntheticOrders.START_TIME + 1400 * DAY });
+
+		checkBatch(5000, 7L, oos);
+	}
+
+	@Test
+	public void batchMatchesComputeWithoutOOS() throws Exception {
+		checkBatch(3000, 11L, null);
+	}
+
+	@Test
+	public void batchMatchesComputeWithoutOrders() throws Exception {
+		checkBatch(0, 13L, null);
+	}
+
+	//------------------------------------------------------------------------
+
+	private void checkBatch(int trades, long seed, OutOfSample oos) throws Exception {
+		OrdersList ordersList = SyntheticOrders.create(trades, seed);
+		ordersList.setOutOfSample(oos);
+
+		SettingsMap settings = new SettingsMap();
+		if(oos != null) {
+			settings.put("ChartOOS", oos);
+		}
+
+		int count = DIRECTIONS.length * PL_TYPES.length * SAMPLE_TYPES.length;
+		StatsTypeCombination[] combinations = new StatsTypeCombination[count];
+		SQStats[] batchStats = new SQStats[count];
+
+		int c = 0;
+		for(byte direction : DIRECTIONS) {
+			for(byte plType : PL_TYPES) {
+				for(byte sampleType : SAMPLE_TYPES) {
+					combinations[c] = new StatsTypeCombination(direction, plType, sampleType);
+					batchStats[c] = new SQStats();
+					c++;
+				}
+			}
+		}
+
+		Stagnation column = new Stagnation();
+		double[] batch = column.computeBatch(batchStats, combinations, ordersList, settings);
+
+		for(c=0; c<count; c++) {
+			StatsTypeCombination combination = combinations[c];
+			OrdersList filtered = ordersList.filterWithClone(null, combination.getDirection(), combination.getSampleType());
+
+			SQStats stats = new SQStats();
+			double value = column.compute(stats, combination, filtered, settings, null, null);
+
+			String message = "combination " + combination;
+			assertEquals(value, batch[c], message);
+			assertEquals(stats.getDouble(StatsKey.STAGNATION_FROM), batchStats[c].getDouble(StatsKey.STAGNATION_FROM), message);
+			assertEquals(stats.getDouble(StatsKey.STAGNATION_TO), batchStats[c].getDouble(StatsKey.STAGNATION_TO), message);
+			assertEquals(stats.getDouble(StatsKey.STAGNATION_PERIOD_PCT), batchStats[c].getDouble(StatsKey.STAGNATION_PERIOD_PCT), message);
+		}
+	}
+}
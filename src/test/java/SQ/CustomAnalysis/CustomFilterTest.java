@@ -0,0 +1,278 @@
+package SQ.CustomAnalysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.strategyquant.lib.SettingsMap;
+import com.strategyquant.tradinglib.CustomAnalysisMethod;
+import com.strategyquant.tradinglib.DatabankColumn;
+import com.strategyquant.tradinglib.Directions;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.PlTypes;
+import com.strategyquant.tradinglib.ResultsGroup;
+import com.strategyquant.tradinglib.SQStats;
+import com.strategyquant.tradinglib.SampleTypes;
+import com.strategyquant.tradinglib.StatsTypeCombination;
+import com.strategyquant.tradinglib.strategy.OutOfSample;
+
+import SQ.Columns.Databanks.ProfitFactor;
+import SQ.Columns.Databanks.RExpectancy;
+import SQ.Columns.Databanks.ReturnDDRatio;
+import SQ.Columns.Databanks.SharpeRatio;
+import SQ.Columns.Databanks.Stability;
+import SQ.Columns.Databanks.Stagnation;
+import SQ.Testing.Allocations;
+import SQ.Testing.GoldenValues;
+import SQ.Testing.PerfBudget;
+import SQ.Testing.SyntheticOrders;
+
+/**
+ * Regression gate for CustomFilter - fixed, databank normalized and robustness scores of synthetic
+ * strategies against golden values, * databank sketches built by processDatabank() and allocation budget of filterStrategy().
+ */
+public class CustomFilterTest {
+	private static final StatsTypeCombination COMBINATION = new StatsTypeCombination(Directions.Both, PlTypes.Money, SampleTypes.InSample);
+
+	private static final GoldenValues golden = new GoldenValues("customfilter");
+
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	@AfterAll
+	public static void saveGolden() throws Exception {
+		golden.save();
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Strategy with all composite score metrics computed by the columns.
+	 */
+	static ResultsGroup createStrategy(String name, int trades, long seed) throws Exception {
+		return createStrategy(name, SyntheticOrders.create(trades, seed), new SettingsMap());
+	}
+
+	/**
+	 * Same as above for given orders and settings, metrics are computed from in-sample orders.
+	 */
+	static ResultsGroup createStrategy(String name, OrdersList orders, SettingsMap settings) throws Exception {
+		OrdersList inSample = orders.filterWithClone(null, Directions.Both, SampleTypes.InSample);
+		SQStats stats = SyntheticOrders.computeStats(inSample);
+
+		DatabankColumn[] columns = { new ReturnDDRatio(), new Stability(), new ProfitFactor(), new SharpeRatio(), new RExpectancy(), new Stagnation() };
+		String[] keys = { "ReturnDDRatio", "Stability", "ProfitFactor", "SharpeRatio", "RExpectancy", "Stagnation" };
+
+		for(int i=0; i<columns.length; i++) {
+			stats.set(keys[i], columns[i].compute(stats, COMBINATION, inSample, settings, null, null));
+		}
+
+		return new ResultsGroup(name, stats, orders, settings);
+	}
+
+	static double[] metricsOf(ResultsGroup rg) {
+		SQStats stats = rg.subResult(rg.getMainResultKey()).stats(Directions.Both, PlTypes.Money, SampleTypes.InSample);
+		String[] keys = { "ReturnDDRatio", "Stability", "ProfitFactor", "SharpeRatio", "RExpectancy", "Stagnation" };
+
+		double[] metrics = new double[keys.length];
+		for(int i=0; i<keys.length; i++) {
+			metrics[i] = stats.getDouble(keys[i]);
+		}
+		return metrics;
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void fixedScoreMatchesGolden() throws Exception {
+		for(int s=0; s<10; s++) {
+			ResultsGroup rg = createStrategy("Strategy " + s, 500 + 150 * s, 1000L + s);
+			golden.check("fixedScore." + s, CustomFilter.computeScore(metricsOf(rg)));
+		}
+
+		// short strategies picked so that no score is clamped to 0 or 100
+		int[] cases = { 0, 2, 4, 6, 9, 13, 19, 22, 28, 36 };
+		for(int s=0; s<cases.length; s++) {
+			ResultsGroup rg = createStrategy("Short " + s, 40 + 3 * cases[s], 2000L + cases[s]);
+			golden.check("fixedScore.short." + s, CustomFilter.computeScore(metricsOf(rg)));
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Sketches of a databank small enough for at most two worker chunks, so the merge order
+	 * and the resulting sketches do not depend on the number of cores.
+	 */
+	private static CustomFilter.DatabankSketches createGoldenSketches() throws Exception {
+		CustomFilter.getSketchFile("Project", "Golden").delete();
+
+		ArrayList<ResultsGroup> databank = new ArrayList<>();
+		for(int s=0; s<400; s++) {
+			databank.add(createStrategy("Strategy " + s, 60 + s % 90, 3000L + s));
+		}
+
+		CustomFilter filter = new CustomFilter();
+		filter.setInputArgs("50");
+		filter.processDatabank("Project", "Task", "Golden", databank);
+
+		CustomFilter.DatabankSketches sketches = CustomFilter.loadSketches("Project", "Golden");
+		assertNotNull(sketches);
+		return sketches;
+	}
+
+	@Test
+	public void normalizedScoreMatchesGolden() throws Exception {
+		CustomFilter.DatabankSketches sketches = createGoldenSketches();
+
+		for(int s=0; s<10; s++) {
+			ResultsGroup rg = createStrategy("Candidate " + s, 40 + 15 * s, 4000L + s);
+			golden.check("normalizedScore." + s, CustomFilter.computeScore(metricsOf(rg), sketches));
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void robustScoreMatchesGolden() throws Exception {
+		CustomFilter.DatabankSketches sketches = createGoldenSketches();
+
+		CustomFilter.FilterOptions shuffle = CustomFilter.FilterOptions.parse("50 mc=200 pct=5 seed=17");
+		CustomFilter.FilterOptions bootstrap = CustomFilter.FilterOptions.parse("50 mc=200 pct=10 mode=bootstrap seed=17");
+
+		for(int s=0; s<5; s++) {
+			ResultsGroup rg = createStrategy("Robust " + s, 100 + 25 * s, 6010L + s);
+			double[] metrics = metricsOf(rg);
+
+			golden.check("robustScore.shuffle." + s, CustomFilter.computeRobustScore(rg, metrics, null, shuffle));
+			golden.check("robustScore.bootstrap." + s, CustomFilter.computeRobustScore(rg, metrics, null, bootstrap));
+			golden.check("robustScore.shuffle.normalized." + s, CustomFilter.computeRobustScore(rg, metrics, sketches, shuffle));
+			golden.check("robustScore.bootstrap.normalized." + s, CustomFilter.computeRobustScore(rg, metrics, sketches, bootstrap));
+		}
+
+		// OOS trades are left out and resampled stagnation is cut at OOS ranges
+		OrdersList orders = SyntheticOrders.create(150, 6100L);
+		OutOfSample oos = new OutOfSample(
+			new long[] { SyntheticOrders.START_TIME + 20 * DAY },
+			new long[] { SyntheticOrders.START_TIME + 45 * DAY });
+		orders.setOutOfSample(oos);
+
+		SettingsMap settings = new SettingsMap();
+		settings.put("ChartOOS", oos);
+		ResultsGroup rg = createStrategy("Robust OOS", orders, settings);
+		golden.check("robustScore.shuffle.oos", CustomFilter.computeRobustScore(rg, metricsOf(rg), null, shuffle));
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void filterAllocationWithinBudget(TestReporter reporter) throws Exception {
+		CustomFilter filter = new CustomFilter();
+		filter.setInputArgs("50");
+
+		ResultsGroup rg = createStrategy("Allocation", 2000, 7L);
+
+		long bytes = Allocations.bytesPerCall(20000, 20000, () -> filter.filterStrategy("Project", "Task", "Allocation", rg));
+		PerfBudget.check(reporter, "CustomFilter.filterStrategy.bytesPerCall", bytes);
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void databankSketchesMergedAndUpdatedIncrementally() throws Exception {
+		File file = CustomFilter.getSketchFile("Project", "Sketches");
+		file.delete();
+
+		// more strategies than one worker chunk, so partial sketches are merged
+		ArrayList<ResultsGroup> databank = new ArrayList<>();
+		for(int s=0; s<1000; s++) {
+			databank.add(createStrategy("Strategy " + s, 100 + s % 50, 5000L + s));
+		}
+
+		CustomFilter filter = new CustomFilter();
+		filter.setInputArgs("50");
+
+		// percentile rank - about half of databank is above the median
+		ArrayList<ResultsGroup> filtered = filter.processDatabank("Project", "Task", "Sketches", databank);
+		assertTrue(filtered.size() > 400 && filtered.size() < 600, "filtered " + filtered.size());
+
+		CustomFilter.DatabankSketches sketches = CustomFilter.loadSketches("Project", "Sketches");
+		assertEquals(1000, sketches.composite.getCount());
+		for(int m=0; m<sketches.metrics.length; m++) {
+			assertEquals(1000, sketches.metrics[m].getCount());
+		}
+
+		// second run with 200 new strategies only adds the new ones to metric sketches
+		for(int s=1000; s<1200; s++) {
+			databank.add(createStrategy("Strategy " + s, 100 + s % 50, 5000L + s));
+		}
+		filter.processDatabank("Project", "Task", "Sketches", databank);
+
+		sketches = CustomFilter.loadSketches("Project", "Sketches");
+		assertEquals(1200, sketches.composite.getCount());
+		for(int m=0; m<sketches.metrics.length; m++) {
+			assertEquals(1200, sketches.metrics[m].getCount());
+		}
+		assertTrue(sketches.strategies.mightContain("Strategy 1199"));
+		assertFalse(sketches.strategies.mightContain("Strategy 1200"));
+
+		// removing 10% of strategies keeps the sketches
+		ArrayList<ResultsGroup> smaller = new ArrayList<>(databank.subList(120, 1200));
+		filter.processDatabank("Project", "Task", "Sketches", smaller);
+
+		sketches = CustomFilter.loadSketches("Project", "Sketches");
+		assertEquals(1200, sketches.metrics[0].getCount());
+		assertEquals(1080, sketches.composite.getCount());
+
+		// removing more than 20% rebuilds them from the current databank
+		smaller = new ArrayList<>(databank.subList(500, 1200));
+		filter.processDatabank("Project", "Task", "Sketches", smaller);
+
+		sketches = CustomFilter.loadSketches("Project", "Sketches");
+		assertEquals(700, sketches.metrics[0].getCount());
+		assertEquals(700, sketches.composite.getCount());
+		assertFalse(sketches.strategies.mightContain("Strategy 0"));
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void thresholdIsRequired() throws Exception {
+		CustomFilter filter = new CustomFilter();
+		filter.setInputArgs("mc=100 pct=5");
+
+		ResultsGroup rg = createStrategy("Threshold", 200, 9L);
+		assertThrows(IllegalArgumentException.class, () -> filter.filterStrategy("Project", "Task", "Threshold", rg));
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void defaultTypeIsStrategyFilter() {
+		// existing SQX setups use this snippet as strategy filter
+		assertEquals(CustomAnalysisMethod.TYPE_FILTER_STRATEGY, new CustomFilter().getType());
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void changedInputArgsAreParsedAgain() throws Exception {
+		CustomFilter filter = new CustomFilter();
+		ResultsGroup rg = createStrategy("Args", 300, 11L);
+
+		filter.setInputArgs("0");
+		assertTrue(filter.filterStrategy("Project", "Task", "Args", rg));
+
+		// scores are at most 100
+		filter.setInputArgs("101");
+		assertFalse(filter.filterStrategy("Project", "Task", "Args", rg));
+	}
+}
@@ -0,0 +1,37 @@
+package SQ.Functions;
+
+import com.strategyquant.lib.SQTime;
+import com.strategyquant.tradinglib.Order;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.PlTypes;
+
+/**
+ * Test stand-in for SQX daily equity computer - equity at the end of every calendar day
+ * from the first to the last close time.
+ */
+public class DailyEquityComputer {
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	public static double[] computeDailyEquity(OrdersList ordersList, byte plType) {
+		if(ordersList == null || ordersList.isEmpty()) {
+			return new double[0];
+		}
+
+		long firstDay = SQTime.correctDayStart(ordersList.get(0).CloseTime);
+		long lastDay = SQTime.correctDayStart(ordersList.get(ordersList.size()-1).CloseTime);
+
+		double[] equity = new double[(int) ((lastDay - firstDay) / DAY) + 1];
+
+		for(int i=0; i<ordersList.size(); i++) {
+			Order order = ordersList.get(i);
+			int day = (int) ((SQTime.correctDayStart(order.CloseTime) - firstDay) / DAY);
+			equity[day] += plType == PlTypes.Percent ? order.PctPL : order.PL;
+		}
+
+		for(int d=1; d<equity.length; d++) {
+			equity[d] += equity[d-1];
+		}
+
+		return equity;
+	}
+}
@@ -0,0 +1,126 @@
+package SQ.Functions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.strategyquant.tradinglib.OrdersList;
+
+import SQ.Testing.Allocations;
+import SQ.Testing.PerfBudget;
+import SQ.Testing.SyntheticOrders;
+
+/**
+ * PortfolioEngine selection against exhaustive / sequential evaluation and allocation budget
+ * of candidate evaluation.
+ */
+public class PortfolioEngineTest {
+	private static final int STRATEGIES = 400;
+
+	private static PortfolioEngine engine;
+
+	@BeforeAll
+	public static void createEngine() {
+		List<OrdersList> strategies = new ArrayList<>();
+		for(int s=0; s<STRATEGIES; s++) {
+			strategies.add(SyntheticOrders.create(300, 100L + s));
+		}
+		engine = new PortfolioEngine(strategies);
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void greedyMatchesSequentialSelection() {
+		int size = 5;
+		int[] expected = new int[size];
+		boolean[] used = new boolean[STRATEGIES];
+
+		for(int step=0; step<size; step++) {
+			int best = -1;
+			double bestValue = 0;
+
+			for(int c=0; c<STRATEGIES; c++) {
+				if(used[c]) {
+					continue;
+				}
+
+				int[] members = Arrays.copyOf(expected, step + 1);
+				members[step] = c;
+				double value = engine.evaluate(members).sharpeRatio;
+
+				if(best < 0 || value > bestValue) {
+					best = c;
+					bestValue = value;
+				}
+			}
+
+			used[best] = true;
+			expected[step] = best;
+		}
+
+		PortfolioEngine.Portfolio portfolio = engine.selectGreedy(size, PortfolioEngine.BY_SHARPE);
+		assertArrayEquals(expected, portfolio.members);
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void wideBeamFindsBestPair() {
+		int count = 40;
+
+		// beam over the first 40 strategies only, wide enough to keep all of them after the first step
+		List<OrdersList> strategies = new ArrayList<>();
+		for(int s=0; s<count; s++) {
+			strategies.add(SyntheticOrders.create(300, 100L + s));
+		}
+		PortfolioEngine small = new PortfolioEngine(strategies);
+
+		double best = Double.NEGATIVE_INFINITY;
+		for(int a=0; a<count; a++) {
+			for(int b=a+1; b<count; b++) {
+				best = Math.max(best, small.evaluate(a, b).regressionR2);
+			}
+		}
+
+		PortfolioEngine.Portfolio portfolio = small.selectBeam(2, count, PortfolioEngine.BY_REGRESSION_R2);
+		assertEquals(best, portfolio.stats.regressionR2, 1e-12);
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void candidateAllocationWithinBudget(TestReporter reporter) {
+		int size = 10;
+		int candidates = 0;
+		for(int step=0; step<size; step++) {
+			candidates += STRATEGIES - step;
+		}
+
+		// warmup creates per worker scratch
+		for(int i=0; i<3; i++) {
+			engine.selectGreedy(size, PortfolioEngine.BY_SHARPE);
+			engine.selectBeam(size, 5, PortfolioEngine.BY_SHARPE);
+		}
+
+		long before = Allocations.allThreadsAllocated();
+		engine.selectGreedy(size, PortfolioEngine.BY_SHARPE);
+		long bytes = (Allocations.allThreadsAllocated() - before) / candidates;
+
+		PerfBudget.check(reporter, "PortfolioEngine.selectGreedy.bytesPerCandidate", bytes);
+
+		// beam evaluates up to beamWidth x strategies candidates per step
+		before = Allocations.allThreadsAllocated();
+		engine.selectBeam(size, 5, PortfolioEngine.BY_SHARPE);
+		bytes = (Allocations.allThreadsAllocated() - before) / (5L * candidates);
+
+		PerfBudget.check(reporter, "PortfolioEngine.selectBeam.bytesPerCandidate", bytes);
+	}
+}
@@ -0,0 +1,149 @@
+package SQ.Functions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Accuracy of QuantileSketch built from partial sketches merged in parallel, as CustomFilter does.
+ */
+public class QuantileSketchTest {
+	private static final int COUNT = 200000;
+	private static final int CHUNK_SIZE = 1000;
+
+	// rank error is roughly 1.7/k, checked with a margin
+	private static final double MAX_RANK_ERROR = 0.02;
+
+	//------------------------------------------------------------------------
+
+	private static double[] createValues(long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		double[] values = new double[COUNT];
+		for(int i=0; i<COUNT; i++) {
+			// skewed distribution with a heavy tail
+			values[i] = Math.exp(random.nextDouble() * 4) * (random.nextBoolean() ? 1 : -0.3);
+		}
+		return values;
+	}
+
+	private static void checkAccuracy(QuantileSketch sketch, double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+
+		assertEquals(values.length, sketch.getCount());
+		assertEquals(sorted[0], sketch.getMin());
+		assertEquals(sorted[sorted.length-1], sketch.getMax());
+
+		for(double q = 0.01; q < 1; q += 0.01) {
+			double estimate = sketch.quantile(q);
+
+			// exact rank of the estimated value
+			int index = Arrays.binarySearch(sorted, estimate);
+			double exactRank = (double) Math.max(0, index) / sorted.length;
+			assertTrue(Math.abs(exactRank - q) <= MAX_RANK_ERROR, "quantile " + q + " has rank " + exactRank);
+
+			double exactValue = sorted[(int) (q * (sorted.length - 1))];
+			assertTrue(Math.abs(sketch.rank(exactValue) - q) <= MAX_RANK_ERROR, "rank of quantile " + q);
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void parallelPartialSketchesMerge() {
+		double[] values = createValues(1L);
+		int chunks = COUNT / CHUNK_SIZE;
+
+		QuantileSketch merged = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+			QuantileSketch partial = new QuantileSketch();
+			for(int i=c*CHUNK_SIZE; i<(c+1)*CHUNK_SIZE; i++) {
+				partial.update(values[i]);
+			}
+			return partial;
+		}).reduce((a, b) -> { a.merge(b); return a; }).orElseGet(QuantileSketch::new);
+
+		checkAccuracy(merged, values);
+	}
+
+	@Test
+	public void sequentialUpdates() {
+		double[] values = createValues(2L);
+
+		QuantileSketch sketch = new QuantileSketch();
+		for(double value : values) {
+			sketch.update(value);
+		}
+
+		checkAccuracy(sketch, values);
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void mergeIntoItselfIsRejected() {
+		QuantileSketch sketch = new QuantileSketch();
+		for(int i=0; i<1000; i++) {
+			sketch.update(i);
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> sketch.merge(sketch));
+		assertEquals(1000, sketch.getCount());
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void serializationRoundTrip() throws Exception {
+		double[] values = createValues(3L);
+
+		QuantileSketch sketch = new QuantileSketch();
+		for(double value : values) {
+			sketch.update(value);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		sketch.writeTo(new DataOutputStream(bytes));
+		QuantileSketch read = QuantileSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(sketch.getCount(), read.getCount());
+		for(double q = 0.05; q < 1; q += 0.05) {
+			assertEquals(sketch.quantile(q), read.quantile(q));
+		}
+
+		// restored sketch keeps accepting values
+		read.update(1e6);
+		assertEquals(1e6, read.getMax());
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void concurrentQueriesOfSharedSketch() {
+		double[] values = createValues(4L);
+
+		QuantileSketch sketch = new QuantileSketch();
+		for(double value : values) {
+			sketch.update(value);
+		}
+
+		QuantileSketch reference = new QuantileSketch();
+		reference.merge(sketch);
+
+		// sorted view is built lazily by whichever thread comes first
+		double[] ranks = IntStream.range(0, 10000).parallel().mapToDouble(i -> sketch.rank(values[i])).toArray();
+
+		for(int i=0; i<ranks.length; i++) {
+			assertEquals(reference.rank(values[i]), ranks[i]);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package SQ.Functions;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+
+/**
+ * Test stand-in for SQX statistical functions.
+ */
+public class StatFunctions {
+	public static double computeAverage(DoubleArrayList values) {
+		if(values == null || values.isEmpty()) {
+			return 0;
+		}
+
+		double sum = 0;
+		for(int i=0; i<values.size(); i++) {
+			sum += values.getDouble(i);
+		}
+		return sum / values.size();
+	}
+
+	public static double computeStdev(double mean, DoubleArrayList values) {
+		if(values == null || values.size() < 2) {
+			return 0;
+		}
+
+		double sum = 0;
+		for(int i=0; i<values.size(); i++) {
+			double d = values.getDouble(i) - mean;
+			sum += d * d;
+		}
+		return Math.sqrt(sum / (values.size() - 1));
+	}
+}
@@ -0,0 +1,139 @@
+package SQ.Functions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.strategyquant.lib.SettingsMap;
+import com.strategyquant.tradinglib.Directions;
+import com.strategyquant.tradinglib.Order;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.PlTypes;
+import com.strategyquant.tradinglib.SQStats;
+import com.strategyquant.tradinglib.SampleTypes;
+import com.strategyquant.tradinglib.StatsTypeCombination;
+import com.strategyquant.tradinglib.strategy.OutOfSample;
+
+import SQ.Columns.Databanks.Stagnation;
+import SQ.Testing.Allocations;
+import SQ.Testing.PerfBudget;
+import SQ.Testing.SyntheticOrders;
+
+/**
+ * TradeResampler invariants and the robustness mode speed / allocation budget - 1000 shuffles
+ * of a 2000 trade strategy, as with CustomFilter input args "60 mc=1000".
+ */
+public class TradeResamplerTest {
+	private static final int TRADES = 2000;
+	private static final int ITERATIONS = 1000;
+
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void shuffleKeepsNetProfitAndIsRepeatable() {
+		OrdersList orders = SyntheticOrders.create(TRADES, 3L);
+		double netProfit = 0;
+		for(int i=0; i<orders.size(); i++) {
+			netProfit += orders.get(i).PL;
+		}
+
+		TradeResampler resampler = new TradeResampler(orders);
+		TradeResampler.Samples samples = resampler.simulate(ITERATIONS, TradeResampler.MODE_SHUFFLE, 42L);
+
+		for(int i=0; i<samples.size(); i++) {
+			assertEquals(netProfit, samples.netProfit[i], 1e-6);
+			assertTrue(samples.drawdown[i] >= 0);
+			assertTrue(samples.stagnationDays[i] >= 0);
+		}
+
+		TradeResampler.Samples again = resampler.simulate(ITERATIONS, TradeResampler.MODE_SHUFFLE, 42L);
+		assertArrayEquals(samples.drawdown, again.drawdown);
+		assertArrayEquals(samples.sharpeRatio, again.sharpeRatio);
+		assertArrayEquals(samples.stagnationDays, again.stagnationDays);
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void simulationWithinBudget(TestReporter reporter) throws Exception {
+		TradeResampler resampler = new TradeResampler(SyntheticOrders.create(TRADES, 5L));
+
+		// warmup creates per worker scratch
+		for(int i=0; i<5; i++) {
+			resampler.simulate(ITERATIONS, TradeResampler.MODE_SHUFFLE, i);
+		}
+
+		long before = Allocations.allThreadsAllocated();
+		resampler.simulate(ITERATIONS, TradeResampler.MODE_SHUFFLE, 7L);
+		long bytes = (Allocations.allThreadsAllocated() - before) / ITERATIONS;
+
+		PerfBudget.check(reporter, "TradeResampler.simulate.bytesPerIteration", bytes);
+
+		double millis = Allocations.nanosPerCall(5, 200_000_000L, () -> resampler.simulate(ITERATIONS, TradeResampler.MODE_SHUFFLE, 7L)) / 1e6;
+		PerfBudget.check(reporter, "TradeResampler.simulate.millis", millis);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Resampled in-sample trades in given order must give the same drawdown and stagnation as the columns
+	 * computed on orders with the same PLs at the original close times, including the cut at OOS ranges.
+	 */
+	@Test
+	public void iterationMatchesColumnsWithOOS() throws Exception {
+		OrdersList orders = SyntheticOrders.create(TRADES, 9L);
+		OutOfSample oos = new OutOfSample(
+			new long[] { SyntheticOrders.START_TIME + 100 * DAY, SyntheticOrders.START_TIME + 400 * DAY },
+			new long[] { SyntheticOrders.START_TIME + 160 * DAY, SyntheticOrders.START_TIME + 450 * DAY });
+		orders.setOutOfSample(oos);
+
+		OrdersList inSample = orders.filterWithClone(null, Directions.Both, SampleTypes.InSample);
+		TradeResampler resampler = new TradeResampler(inSample, oos);
+
+		SettingsMap settings = new SettingsMap();
+		settings.put("ChartOOS", oos);
+		StatsTypeCombination combination = new StatsTypeCombination(Directions.Both, PlTypes.Money, SampleTypes.InSample);
+
+		SplittableRandom random = new SplittableRandom(1L);
+		int n = inSample.size();
+
+		for(int r=0; r<20; r++) {
+			// identity first, then random permutations
+			int[] perm = new int[n];
+			for(int i=0; i<n; i++) {
+				perm[i] = i;
+			}
+			for(int i=n-1; i>0 && r>0; i--) {
+				int j = random.nextInt(i + 1);
+				int tmp = perm[i];
+				perm[i] = perm[j];
+				perm[j] = tmp;
+			}
+
+			OrdersList permuted = new OrdersList();
+			for(int i=0; i<n; i++) {
+				Order order = new Order(true);
+				order.OpenTime = inSample.get(i).OpenTime;
+				order.CloseTime = inSample.get(i).CloseTime;
+				order.PL = inSample.get(perm[i]).PL;
+				order.PctPL = inSample.get(perm[i]).PctPL;
+				permuted.add(order);
+			}
+
+			SQStats stats = SyntheticOrders.computeStats(permuted);
+			double stagnation = new Stagnation().compute(stats, combination, permuted, settings, null, null);
+
+			TradeResampler.Samples samples = resampler.replay(perm);
+			assertEquals(stats.getDouble("NetProfit"), samples.netProfit[0], 1e-6);
+			assertEquals(stats.getDouble("Drawdown"), samples.drawdown[0], 1e-6);
+			assertEquals(stagnation, samples.stagnationDays[0], "permutation " + r);
+		}
+	}
+}
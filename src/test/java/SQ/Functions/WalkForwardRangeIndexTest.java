@@ -0,0 +1,216 @@
+package SQ.Functions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.strategyquant.lib.SQTime;
+import com.strategyquant.lib.SettingsMap;
+import com.strategyquant.tradinglib.Directions;
+import com.strategyquant.tradinglib.Order;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.PlTypes;
+import com.strategyquant.tradinglib.SQStats;
+import com.strategyquant.tradinglib.SampleTypes;
+import com.strategyquant.tradinglib.StatsKey;
+import com.strategyquant.tradinglib.StatsTypeCombination;
+
+import SQ.Columns.Databanks.ProfitFactor;
+import SQ.Columns.Databanks.RExpectancy;
+import SQ.Columns.Databanks.ReturnDDRatio;
+import SQ.Columns.Databanks.Stagnation;
+import SQ.Testing.SyntheticOrders;
+
+/**
+ * WalkForwardRangeIndex window stats against the databank columns computed on the orders of the window.
+ *
+ * Stagnation is also checked against a reference in exact whole cent arithmetic. Equity returning exactly
+ * to an earlier peak is not a new high there and in the index, while the column decides such ties by
+ * rounding of its double sums - so the column is only allowed to differ in windows with an exact tie.
+ */
+public class WalkForwardRangeIndexTest {
+	private static final StatsTypeCombination COMBINATION = new StatsTypeCombination(Directions.Both, PlTypes.Money, SampleTypes.InSample);
+
+	private static final long HOUR = 60L * 60 * 1000;
+
+	// ratios on the rounding boundary may differ by one unit of the last rounded digit, see class doc
+	private static final double ROUNDING_UNIT_2 = 0.01 + 1e-9;
+	private static final double ROUNDING_UNIT_4 = 0.0001 + 1e-9;
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Checks window of trades first..last against the columns.
+	 */
+	private static void checkWindow(WalkForwardRangeIndex index, OrdersList orders, int first, int last) throws Exception {
+		OrdersList window = new OrdersList();
+		for(int i=first; i<=last; i++) {
+			window.add(orders.get(i));
+		}
+
+		SQStats stats = SyntheticOrders.computeStats(window);
+		SettingsMap settings = new SettingsMap();
+		String message = "trades " + first + ".." + last;
+
+		WalkForwardRangeIndex.WindowStats ws = index.queryTrades(first, last);
+
+		assertEquals(new ProfitFactor().compute(stats, COMBINATION, window, settings, null, null), ws.getProfitFactor(), ROUNDING_UNIT_2, message);
+		assertEquals(new RExpectancy().compute(stats, COMBINATION, window, settings, null, null), ws.getRExpectancy(), ROUNDING_UNIT_4, message);
+		assertEquals(new ReturnDDRatio().compute(stats, COMBINATION, window, settings, null, null), ws.getReturnDDRatio(), ROUNDING_UNIT_2, message);
+
+		long[] exact = exactStagnation(window);
+		assertEquals(exact[0], ws.getStagnation(), message);
+		if(exact[0] > 0) {
+			assertEquals(exact[1], ws.stagnationFrom, message);
+			assertEquals(exact[2], ws.stagnationTo, message);
+		}
+
+		double stagnation = new Stagnation().compute(stats, COMBINATION, window, settings, null, null);
+		if(!hasExactTie(window)) {
+			assertEquals(stagnation, ws.getStagnation(), message);
+
+			// column reports from / to of the last order even without stagnation
+			if(stagnation > 0) {
+				assertEquals(stats.getDouble(StatsKey.STAGNATION_FROM), ws.stagnationFrom, message);
+				assertEquals(stats.getDouble(StatsKey.STAGNATION_TO), ws.stagnationTo, message);
+			}
+		}
+
+		// time range query covers the same trades
+		WalkForwardRangeIndex.WindowStats byTime = index.query(orders.get(first).CloseTime, orders.get(last).CloseTime);
+		assertEquals(ws.numberOfTrades, byTime.numberOfTrades, message);
+		assertEquals(ws.getStagnation(), byTime.getStagnation(), message);
+	}
+
+	//------------------------------------------------------------------------
+
+	private static long cents(Order order) {
+		return Math.round(order.PL * 100);
+	}
+
+	/**
+	 * Stagnation column algorithm (without OOS) in whole cents - returns days, from, to.
+	 */
+	private static long[] exactStagnation(OrdersList window) {
+		long balance = 0, high = 0;
+		int peak = 0, bestFirst = -1, bestLast = -1;
+		long bestPeriod = 0;
+		boolean active = false;
+
+		for(int i=0; i<window.size(); i++) {
+			balance += cents(window.get(i));
+
+			if(balance > high) {
+				long period = window.get(i).CloseTime - window.get(peak).CloseTime;
+				if(active && period > bestPeriod) {
+					bestFirst = peak;
+					bestLast = i;
+					bestPeriod = period;
+				}
+				peak = i;
+				high = balance;
+				active = false;
+			} else {
+				active = true;
+			}
+		}
+
+		int last = window.size() - 1;
+		if(active && window.get(last).CloseTime - window.get(peak).CloseTime > bestPeriod) {
+			bestFirst = peak;
+			bestLast = last;
+		}
+
+		if(bestFirst < 0) {
+			return new long[] { 0, 0, 0 };
+		}
+
+		long from = window.get(bestFirst).CloseTime;
+		long to = window.get(bestLast).CloseTime;
+		return new long[] { SQTime.getDaysBetween(from, to), from, to };
+	}
+
+	/**
+	 * True if equity of the window returns exactly to its running high.
+	 */
+	private static boolean hasExactTie(OrdersList window) {
+		long balance = 0, high = 0;
+		for(int i=0; i<window.size(); i++) {
+			balance += cents(window.get(i));
+			if(balance == high) {
+				return true;
+			}
+			high = Math.max(high, balance);
+		}
+		return false;
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void randomWindowsMatchColumns() throws Exception {
+		SplittableRandom random = new SplittableRandom(27L);
+
+		for(int seed=0; seed<50; seed++) {
+			OrdersList orders = SyntheticOrders.create(400, seed);
+			WalkForwardRangeIndex index = new WalkForwardRangeIndex(orders, o -> o.PL);
+
+			for(int w=0; w<150; w++) {
+				int first = random.nextInt(orders.size());
+				int last = first + random.nextInt(orders.size() - first);
+				checkWindow(index, orders, first, last);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Equity returning exactly to an earlier peak is not a new high - whole history prefix sums
+	 * and window sums round differently, ties must not depend on that.
+	 */
+	@Test
+	public void returnToPreviousPeakIsNotNewHigh() throws Exception {
+		// equity returns to the cent-based peak 115.46 of the window after a long drawdown
+		OrdersList orders = SyntheticOrders.create(200, 36L);
+		WalkForwardRangeIndex index = new WalkForwardRangeIndex(orders, o -> o.PL);
+		checkWindow(index, orders, 145, 176);
+
+		// constructed ties at every window start
+		double[] pl = { 13.37, 24.41, -5.03, -7.77, 12.80, 0.01, -3.33, 3.33, 5.55, -5.55, 0.10, 0.20, -0.30, 8.08 };
+		OrdersList constructed = new OrdersList();
+		long time = SyntheticOrders.START_TIME;
+		for(int r=0; r<20; r++) {
+			for(double value : pl) {
+				Order order = new Order(true);
+				order.OpenTime = time;
+				time += HOUR * 7;
+				order.CloseTime = time;
+				order.PL = value;
+				constructed.add(order);
+			}
+		}
+
+		WalkForwardRangeIndex constructedIndex = new WalkForwardRangeIndex(constructed, o -> o.PL);
+		for(int first=0; first<constructed.size(); first++) {
+			for(int last=first; last<constructed.size(); last+=3) {
+				checkWindow(constructedIndex, constructed, first, last);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	@Test
+	public void emptyWindow() {
+		OrdersList orders = SyntheticOrders.create(100, 1L);
+		WalkForwardRangeIndex index = new WalkForwardRangeIndex(orders, o -> o.PL);
+
+		WalkForwardRangeIndex.WindowStats ws = index.query(0, SyntheticOrders.START_TIME - 1);
+		assertEquals(0, ws.numberOfTrades);
+		assertEquals(0, ws.getStagnation());
+		assertEquals(0, ws.getProfitFactor());
+	}
+}
@@ -0,0 +1,78 @@
+package SQ.Testing;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures bytes allocated by code under test using ThreadMXBean allocation counters.
+ */
+public class Allocations {
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public interface Call {
+		void run() throws Exception;
+	}
+
+	static {
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Average bytes allocated by current thread per call, measured after warmup.
+	 */
+	public static long bytesPerCall(int warmupCalls, int calls, Call call) throws Exception {
+		for(int i=0; i<warmupCalls; i++) {
+			call.run();
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long before = THREADS.getThreadAllocatedBytes(threadId);
+		for(int i=0; i<calls; i++) {
+			call.run();
+		}
+		long after = THREADS.getThreadAllocatedBytes(threadId);
+
+		return (after - before) / calls;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Bytes allocated by all live threads, for code that runs in parallel workers.
+	 */
+	public static long allThreadsAllocated() {
+		long[] ids = THREADS.getAllThreadIds();
+		long total = 0;
+		for(long bytes : THREADS.getThreadAllocatedBytes(ids)) {
+			if(bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Best (lowest) average nanos per call out of several rounds, each round running at least minNanos.
+	 */
+	public static double nanosPerCall(int rounds, long minNanos, Call call) throws Exception {
+		double best = Double.MAX_VALUE;
+
+		for(int r=0; r<rounds; r++) {
+			int calls = 0;
+			long start = System.nanoTime();
+			long elapsed;
+			do {
+				call.run();
+				calls++;
+				elapsed = System.nanoTime() - start;
+			} while(elapsed < minNanos);
+
+			best = Math.min(best, (double) elapsed / calls);
+		}
+
+		return best;
+	}
+}
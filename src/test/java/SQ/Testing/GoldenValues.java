@@ -0,0 +1,75 @@
+package SQ.Testing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Golden metric values stored in src/test/resources/golden/<name>.properties.
+ *
+ * Run tests with -Dgolden.update=true to rewrite the file from current results, only do that
+ * when a change of values is intended.
+ */
+public class GoldenValues {
+	private static final double TOLERANCE = 1e-9;
+
+	private final String name;
+	private final Properties golden = new Properties();
+	private final TreeMap<String, String> actual = new TreeMap<>();
+	private final boolean update = Boolean.getBoolean("golden.update");
+
+	public GoldenValues(String name) {
+		this.name = name;
+
+		try(InputStream in = GoldenValues.class.getResourceAsStream("/golden/" + name + ".properties")) {
+			if(in != null) {
+				golden.load(in);
+			}
+		} catch(IOException e) {
+			throw new IllegalStateException("Cannot load golden values " + name, e);
+		}
+	}
+
+	//------------------------------------------------------------------------
+
+	public void check(String key, double value) {
+		actual.put(key, Double.toString(value));
+
+		if(update) {
+			return;
+		}
+
+		String expected = golden.getProperty(key);
+		assertNotNull(expected, "Missing golden value " + name + ":" + key);
+		assertEquals(Double.parseDouble(expected), value, TOLERANCE * Math.max(1, Math.abs(value)), "Golden value " + name + ":" + key);
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Writes checked values back to the source tree when running with -Dgolden.update=true.
+	 */
+	public void save() throws IOException {
+		if(!update) {
+			return;
+		}
+
+		File file = new File("src/test/resources/golden/" + name + ".properties");
+		file.getParentFile().mkdirs();
+
+		try(OutputStream out = new FileOutputStream(file)) {
+			StringBuilder sb = new StringBuilder("# golden values, regenerate with -Dgolden.update=true\n");
+			for(String key : actual.keySet()) {
+				sb.append(key).append('=').append(actual.get(key)).append('\n');
+			}
+			out.write(sb.toString().getBytes("UTF-8"));
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package SQ.Testing;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.junit.jupiter.api.TestReporter;
+
+/**
+ * Checked-in performance budget, src/test/resources/perf-budget.properties.
+ */
+public class PerfBudget {
+	private static final Properties BUDGET = new Properties();
+
+	static {
+		try(InputStream in = PerfBudget.class.getResourceAsStream("/perf-budget.properties")) {
+			BUDGET.load(in);
+		} catch(IOException e) {
+			throw new IllegalStateException("Cannot load performance budget", e);
+		}
+	}
+
+	public static double get(String key) {
+		String value = BUDGET.getProperty(key);
+		if(value == null) {
+			throw new IllegalStateException("Missing performance budget for " + key);
+		}
+		return Double.parseDouble(value.trim());
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Checks measured value against its budget, both are published as test report entry.
+	 */
+	public static void check(TestReporter reporter, String key, double measured) {
+		check(reporter, key, key, measured);
+	}
+
+	/**
+	 * Same as above, for budgets shared by several measurements reported under their own keys.
+	 */
+	public static void check(TestReporter reporter, String reportKey, String budgetKey, double measured) {
+		double budget = get(budgetKey);
+		reporter.publishEntry(reportKey, measured + " (budget " + budget + ")");
+		assertTrue(measured <= budget, reportKey + ": " + measured + ", budget " + budget);
+	}
+}
@@ -0,0 +1,78 @@
+package SQ.Testing;
+
+import java.util.SplittableRandom;
+
+import com.strategyquant.tradinglib.Order;
+import com.strategyquant.tradinglib.OrdersList;
+import com.strategyquant.tradinglib.SQStats;
+
+/**
+ * Deterministic synthetic order lists for regression tests.
+ */
+public class SyntheticOrders {
+	// Monday 4.1.2010 00:00 UTC
+	public static final long START_TIME = 1262563200000L;
+
+	private static final long HOUR = 60L * 60 * 1000;
+
+	/**
+	 * Orders with slightly positive expectancy, closing 2-14 hours apart, mixed long / short.
+	 */
+	public static OrdersList create(int trades, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		OrdersList orders = new OrdersList();
+
+		long time = START_TIME;
+		for(int i=0; i<trades; i++) {
+			Order order = new Order(random.nextBoolean());
+
+			order.OpenTime = time + HOUR;
+			time += HOUR * (2 + random.nextInt(13));
+			order.CloseTime = time;
+
+			// PL rounded to cents so golden values don't depend on last bits
+			order.PL = Math.round((random.nextDouble() * 200 - 95) * 100) / 100d;
+			order.PctPL = order.PL / 100d;
+			order.PipsPL = order.PL / 10d;
+
+			orders.add(order);
+		}
+
+		return orders;
+	}
+
+	//------------------------------------------------------------------------
+
+	/**
+	 * Fills stats the columns depend on (NetProfit, GrossProfit, GrossLoss, NumberOfTrades, AvgLoss, Drawdown)
+	 * from money PL of all orders.
+	 */
+	public static SQStats computeStats(OrdersList orders) {
+		double netProfit = 0, grossProfit = 0, grossLoss = 0, peak = 0, drawdown = 0;
+		int losses = 0;
+
+		for(int i=0; i<orders.size(); i++) {
+			double pl = orders.get(i).PL;
+			netProfit += pl;
+
+			if(pl > 0) {
+				grossProfit += pl;
+			} else if(pl < 0) {
+				grossLoss += -pl;
+				losses++;
+			}
+
+			peak = Math.max(peak, netProfit);
+			drawdown = Math.max(drawdown, peak - netProfit);
+		}
+
+		SQStats stats = new SQStats();
+		stats.set("NetProfit", netProfit);
+		stats.set("GrossProfit", grossProfit);
+		stats.set("GrossLoss", grossLoss);
+		stats.set("NumberOfTrades", orders.size());
+		stats.set("AvgLoss", losses == 0 ? 0 : -grossLoss / losses);
+		stats.set("Drawdown", drawdown);
+		return stats;
+	}
+}
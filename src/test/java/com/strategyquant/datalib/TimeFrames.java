@@ -0,0 +1,7 @@
+package com.strategyquant.datalib;
+
+/**
+ * Test stand-in for SQX data library, only needed to resolve wildcard imports.
+ */
+public class TimeFrames {
+}
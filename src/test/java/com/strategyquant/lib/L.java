@@ -0,0 +1,10 @@
+package com.strategyquant.lib;
+
+/**
+ * Test stand-in for SQX translation helper.
+ */
+public class L {
+	public static String tsq(String text) {
+		return text;
+	}
+}
@@ -0,0 +1,24 @@
+package com.strategyquant.lib;
+
+/**
+ * Test stand-in for SQX time helpers, all times are UTC milliseconds.
+ */
+public class SQTime {
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	public static long correctDayStart(long time) {
+		return time - Math.floorMod(time, DAY);
+	}
+
+	/**
+	 * 1 = Monday ... 7 = Sunday
+	 */
+	public static int getDayOfWeek(long time) {
+		// 1.1.1970 was Thursday
+		return (int) Math.floorMod(Math.floorDiv(time, DAY) + 3, 7L) + 1;
+	}
+
+	public static int getDaysBetween(long from, long to) {
+		return (int) ((correctDayStart(to) - correctDayStart(from)) / DAY);
+	}
+}
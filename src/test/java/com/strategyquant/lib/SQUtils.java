@@ -0,0 +1,10 @@
+package com.strategyquant.lib;
+
+/**
+ * Test stand-in for SQX utilities.
+ */
+public class SQUtils {
+	public static double safeDivide(double a, double b) {
+		return b == 0 ? 0 : a / b;
+	}
+}
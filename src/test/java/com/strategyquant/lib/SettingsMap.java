@@ -0,0 +1,9 @@
+package com.strategyquant.lib;
+
+import java.util.HashMap;
+
+/**
+ * Test stand-in for SQX settings map.
+ */
+public class SettingsMap extends HashMap<String, Object> {
+}
@@ -0,0 +1,36 @@
+package com.strategyquant.tradinglib;
+
+import java.util.ArrayList;
+
+/**
+ * Test stand-in for SQX custom analysis base class.
+ */
+public abstract class CustomAnalysisMethod {
+	public static final int TYPE_FILTER_STRATEGY = 0;
+	public static final int TYPE_PROCESS_DATABANK = 1;
+
+	private final String name;
+	private final int type;
+	private String inputArgs = "";
+
+	public CustomAnalysisMethod(String name, int type) {
+		this.name = name;
+		this.type = type;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public String getInputArgs() {
+		return inputArgs;
+	}
+
+	public void setInputArgs(String inputArgs) {
+		this.inputArgs = inputArgs;
+	}
+
+	public abstract boolean filterStrategy(String project, String task, String databankName, ResultsGroup rg) throws Exception;
+
+	public abstract ArrayList<ResultsGroup> processDatabank(String project, String task, String databankName, ArrayList<ResultsGroup> databankRG) throws Exception;
+}
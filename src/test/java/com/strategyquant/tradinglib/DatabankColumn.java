@@ -0,0 +1,62 @@
+package com.strategyquant.tradinglib;
+
+import com.strategyquant.lib.SettingsMap;
+
+/**
+ * Test stand-in for SQX databank column base class.
+ */
+public abstract class DatabankColumn {
+	public static final int Integer = 0;
+	public static final int Decimal2 = 2;
+
+	private final String name;
+
+	public DatabankColumn(String name, int type, int valueType, double defaultValue, double min, double max) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setTooltip(String tooltip) {
+	}
+
+	public void setDependencies(String... columns) {
+	}
+
+	public void setPLTypeRestrictions(byte... plTypes) {
+	}
+
+	public void setDirectionRestrictions(byte... directions) {
+	}
+
+	public void setDependentOnTradingPeriod(boolean dependent) {
+	}
+
+	/**
+	 * PL of the order for PL type of the combination. Direction and sample type are not checked,
+	 * SQX passes orders already filtered for them.
+	 */
+	public double getPLByStatsType(Order order, StatsTypeCombination combination) {
+		switch(combination.getPlType()) {
+			case PlTypes.Percent: return order.PctPL;
+			case PlTypes.Pips:    return order.PipsPL;
+			default:              return order.PL;
+		}
+	}
+
+	public double round2(double value) {
+		return Math.round(value * 100d) / 100d;
+	}
+
+	public double round4(double value) {
+		return Math.round(value * 10000d) / 10000d;
+	}
+
+	public double safeDivide(double a, double b) {
+		return b == 0 ? 0 : a / b;
+	}
+
+	public abstract double compute(SQStats stats, StatsTypeCombination combination, OrdersList ordersList, SettingsMap settings, SQStats statsLong, SQStats statsShort) throws Exception;
+}
@@ -0,0 +1,10 @@
+package com.strategyquant.tradinglib;
+
+/**
+ * Test stand-in for SQX directions.
+ */
+public class Directions {
+	public static final byte Both = 0;
+	public static final byte Long = 1;
+	public static final byte Short = 2;
+}
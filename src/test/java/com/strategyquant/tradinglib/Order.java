@@ -0,0 +1,22 @@
+package com.strategyquant.tradinglib;
+
+/**
+ * Test stand-in for SQX order, only fields used by the snippets.
+ */
+public class Order {
+	public long OpenTime;
+	public long CloseTime;
+	public double PL;
+	public double PctPL;
+	public double PipsPL;
+
+	private final boolean isLong;
+
+	public Order(boolean isLong) {
+		this.isLong = isLong;
+	}
+
+	public boolean isLong() {
+		return isLong;
+	}
+}
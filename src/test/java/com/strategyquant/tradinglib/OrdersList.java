@@ -0,0 +1,33 @@
+package com.strategyquant.tradinglib;
+
+import java.util.ArrayList;
+
+import com.strategyquant.tradinglib.strategy.OutOfSample;
+
+/**
+ * Test stand-in for SQX orders list. OOS ranges set on the list decide sample type of orders.
+ */
+public class OrdersList extends ArrayList<Order> {
+	private OutOfSample oosPeriods;
+
+	public void setOutOfSample(OutOfSample oosPeriods) {
+		this.oosPeriods = oosPeriods;
+	}
+
+	public OrdersList filterWithClone(String resultKey, byte direction, byte sampleType) {
+		OrdersList filtered = new OrdersList();
+		filtered.oosPeriods = oosPeriods;
+
+		for(Order order : this) {
+			if(direction == Directions.Long && !order.isLong()) continue;
+			if(direction == Directions.Short && order.isLong()) continue;
+
+			boolean oos = oosPeriods != null && oosPeriods.contains(order.CloseTime);
+			if(sampleType == SampleTypes.InSample && oos) continue;
+			if(sampleType == SampleTypes.OutOfSample && !oos) continue;
+
+			filtered.add(order);
+		}
+		return filtered;
+	}
+}
@@ -0,0 +1,10 @@
+package com.strategyquant.tradinglib;
+
+/**
+ * Test stand-in for SQX PL types.
+ */
+public class PlTypes {
+	public static final byte Money = 0;
+	public static final byte Percent = 1;
+	public static final byte Pips = 2;
+}
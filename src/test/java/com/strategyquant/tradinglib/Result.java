@@ -0,0 +1,24 @@
+package com.strategyquant.tradinglib;
+
+import com.strategyquant.lib.SettingsMap;
+
+/**
+ * Test stand-in for SQX backtest result, holds only main stats and backtest settings.
+ */
+public class Result {
+	private final SQStats stats;
+	private final SettingsMap settings;
+
+	public Result(SQStats stats, SettingsMap settings) {
+		this.stats = stats;
+		this.settings = settings;
+	}
+
+	public SettingsMap getSettings() {
+		return settings;
+	}
+
+	public SQStats stats(byte direction, byte plType, byte sampleType) {
+		return stats;
+	}
+}
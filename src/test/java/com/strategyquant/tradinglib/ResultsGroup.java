@@ -0,0 +1,40 @@
+package com.strategyquant.tradinglib;
+
+import com.strategyquant.lib.SettingsMap;
+
+/**
+ * Test stand-in for SQX results group with a single main result.
+ */
+public class ResultsGroup {
+	private static final String MAIN_RESULT_KEY = "Main";
+
+	private final String name;
+	private final Result mainResult;
+	private final OrdersList orders;
+
+	public ResultsGroup(String name, SQStats stats, OrdersList orders) {
+		this(name, stats, orders, new SettingsMap());
+	}
+
+	public ResultsGroup(String name, SQStats stats, OrdersList orders, SettingsMap settings) {
+		this.name = name;
+		this.mainResult = new Result(stats, settings);
+		this.orders = orders;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getMainResultKey() {
+		return MAIN_RESULT_KEY;
+	}
+
+	public Result subResult(String key) {
+		return mainResult;
+	}
+
+	public OrdersList orders() {
+		return orders;
+	}
+}
@@ -0,0 +1,37 @@
+package com.strategyquant.tradinglib;
+
+import java.util.HashMap;
+
+/**
+ * Test stand-in for SQX stats. Values are kept in reused slots so that reading and
+ * overwriting existing values doesn't allocate.
+ */
+public class SQStats {
+	private final HashMap<String, double[]> values = new HashMap<>();
+
+	public double getDouble(String key) {
+		double[] slot = values.get(key);
+		return slot == null ? 0 : slot[0];
+	}
+
+	public int getInt(String key) {
+		return (int) getDouble(key);
+	}
+
+	public long getLong(String key) {
+		return (long) getDouble(key);
+	}
+
+	public void set(String key, double value) {
+		double[] slot = values.get(key);
+		if(slot == null) {
+			values.put(key, new double[] { value });
+		} else {
+			slot[0] = value;
+		}
+	}
+
+	public boolean contains(String key) {
+		return values.containsKey(key);
+	}
+}
@@ -0,0 +1,10 @@
+package com.strategyquant.tradinglib;
+
+/**
+ * Test stand-in for SQX sample types.
+ */
+public class SampleTypes {
+	public static final byte FullSample = 0;
+	public static final byte InSample = 1;
+	public static final byte OutOfSample = 2;
+}
@@ -0,0 +1,10 @@
+package com.strategyquant.tradinglib;
+
+/**
+ * Test stand-in for SQX stats keys.
+ */
+public class StatsKey {
+	public static final String STAGNATION_FROM = "StagnationFrom";
+	public static final String STAGNATION_TO = "StagnationTo";
+	public static final String STAGNATION_PERIOD_PCT = "StagnationPeriodPct";
+}
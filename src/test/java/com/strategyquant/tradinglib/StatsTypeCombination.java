@@ -0,0 +1,33 @@
+package com.strategyquant.tradinglib;
+
+/**
+ * Test stand-in for SQX stats type combination.
+ */
+public class StatsTypeCombination {
+	private final byte direction;
+	private final byte plType;
+	private final byte sampleType;
+
+	public StatsTypeCombination(byte direction, byte plType, byte sampleType) {
+		this.direction = direction;
+		this.plType = plType;
+		this.sampleType = sampleType;
+	}
+
+	public byte getDirection() {
+		return direction;
+	}
+
+	public byte getPlType() {
+		return plType;
+	}
+
+	public byte getSampleType() {
+		return sampleType;
+	}
+
+	@Override
+	public String toString() {
+		return direction + "-" + plType + "-" + sampleType;
+	}
+}
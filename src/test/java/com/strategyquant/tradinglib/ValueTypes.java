@@ -0,0 +1,9 @@
+package com.strategyquant.tradinglib;
+
+/**
+ * Test stand-in for SQX value types.
+ */
+public class ValueTypes {
+	public static final int Maximize = 0;
+	public static final int Minimize = 1;
+}
@@ -0,0 +1,30 @@
+package com.strategyquant.tradinglib.correlation;
+
+/**
+ * Test stand-in for SQX correlation computer - Pearson correlation.
+ */
+public class CorrelationComputer {
+	public static double calculateSimilarity(double[] a, double[] b) {
+		int n = Math.min(a.length, b.length);
+		if(n == 0) {
+			return 0;
+		}
+
+		double sumA = 0, sumB = 0;
+		for(int i=0; i<n; i++) {
+			sumA += a[i];
+			sumB += b[i];
+		}
+		double meanA = sumA / n, meanB = sumB / n;
+
+		double cov = 0, varA = 0, varB = 0;
+		for(int i=0; i<n; i++) {
+			double da = a[i] - meanA, db = b[i] - meanB;
+			cov += da * db;
+			varA += da * da;
+			varB += db * db;
+		}
+
+		return varA > 0 && varB > 0 ? cov / Math.sqrt(varA * varB) : 0;
+	}
+}
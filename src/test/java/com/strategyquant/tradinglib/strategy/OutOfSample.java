@@ -0,0 +1,35 @@
+package com.strategyquant.tradinglib.strategy;
+
+/**
+ * Test stand-in for SQX OOS ranges.
+ */
+public class OutOfSample {
+	private final long[] dateFrom;
+	private final long[] dateTo;
+
+	public OutOfSample(long[] dateFrom, long[] dateTo) {
+		this.dateFrom = dateFrom;
+		this.dateTo = dateTo;
+	}
+
+	public int getRangesCount() {
+		return dateFrom.length;
+	}
+
+	public long getDateFrom(int index) {
+		return dateFrom[index];
+	}
+
+	public long getDateTo(int index) {
+		return dateTo[index];
+	}
+
+	public boolean contains(long time) {
+		for(int a=0; a<dateFrom.length; a++) {
+			if(time >= dateFrom[a] && time <= dateTo[a]) {
+				return true;
+			}
+		}
+		return false;
+	}
+}